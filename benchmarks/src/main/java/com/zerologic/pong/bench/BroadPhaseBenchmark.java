@@ -0,0 +1,103 @@
+package com.zerologic.pong.bench;
+
+import com.zerologic.pong.engine.Collision;
+import com.zerologic.pong.engine.SpatialGrid;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finding the overlapping pairs among randomly placed boxes with the {@code SpatialGrid} against testing all pairs.
+ * The field grows with the amount of bodies so the density stays the same, like more balls, bricks and power-ups
+ * spread over a bigger level. The grid should grow about linearly, all pairs quadratically, which is why it is only
+ * measured up to 10k bodies.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BroadPhaseBenchmark {
+
+	private static final float CELL_SIZE = 32f;
+	private static final float MIN_SIZE = 8f;
+	private static final float MAX_SIZE = 32f;
+	private static final float AREA_PER_BODY = 64f * 64f;
+
+	public static class Bodies {
+
+		float[] x, y, w, h;
+
+		void fill(int bodies) {
+			Random random = new Random(42);
+			float side = (float) Math.sqrt(bodies * AREA_PER_BODY);
+
+			x = new float[bodies];
+			y = new float[bodies];
+			w = new float[bodies];
+			h = new float[bodies];
+
+			for (int i = 0; i < bodies; i++) {
+				w[i] = MIN_SIZE + random.nextFloat() * (MAX_SIZE - MIN_SIZE);
+				h[i] = MIN_SIZE + random.nextFloat() * (MAX_SIZE - MIN_SIZE);
+				x[i] = random.nextFloat() * side;
+				y[i] = random.nextFloat() * side;
+			}
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class ManyBodies extends Bodies {
+
+		@Param({ "10", "100", "1000", "10000", "100000" })
+		int bodies;
+
+		final SpatialGrid grid = new SpatialGrid(CELL_SIZE);
+
+		@Setup(Level.Trial)
+		public void setup() {
+			fill(bodies);
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class FewBodies extends Bodies {
+
+		@Param({ "10", "100", "1000", "10000" })
+		int bodies;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			fill(bodies);
+		}
+	}
+
+	// Bodies are added again every time, like bodies that moved since the last step
+	@Benchmark
+	public int grid(ManyBodies state) {
+		SpatialGrid grid = state.grid;
+		grid.clear();
+		for (int i = 0; i < state.x.length; i++) {
+			grid.add(state.x[i], state.y[i], state.w[i], state.h[i]);
+		}
+		return grid.findPairs();
+	}
+
+	@Benchmark
+	public int allPairs(FewBodies state) {
+		float[] x = state.x, y = state.y, w = state.w, h = state.h;
+		int pairs = 0;
+
+		for (int i = 0; i < x.length; i++) {
+			for (int j = i + 1; j < x.length; j++) {
+				if (Collision.overlaps(x[i], y[i], w[i], h[i], x[j], y[j], w[j], h[j])) {
+					pairs++;
+				}
+			}
+		}
+		return pairs;
+	}
+}
@@ -0,0 +1,56 @@
+package com.zerologic.pong.bench;
+
+import com.zerologic.pong.PongSimulation;
+import com.zerologic.pong.engine.Collision;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollisionBenchmark {
+
+	private final PongSimulation.Body ball = new PongSimulation.Body(20f, 20f);
+	private final PongSimulation.Body paddle = new PongSimulation.Body(25f, 200f);
+	private final PongSimulation.Body farPaddle = new PongSimulation.Body(25f, 200f);
+
+	// A ball fast enough to cross the whole paddle within one step
+	private static final float STEP_DX = -400f;
+	private static final float STEP_DY = 40f;
+	private final Collision.Hit hit = new Collision.Hit();
+
+	@Setup
+	public void setup() {
+		ball.setPos(60f, 300f);
+		paddle.setPos(50f, 260f);
+		farPaddle.setPos(1205f, 260f);
+	}
+
+	@Benchmark
+	public boolean overlapping() {
+		return Collision.overlaps(ball.x, ball.y, ball.width, ball.height, paddle.x, paddle.y, paddle.width, paddle.height);
+	}
+
+	@Benchmark
+	public boolean apart() {
+		return Collision.overlaps(ball.x, ball.y, ball.width, ball.height,
+			farPaddle.x, farPaddle.y, farPaddle.width, farPaddle.height);
+	}
+
+	@Benchmark
+	public float sweptThrough() {
+		Collision.sweep(ball.x + 300f, ball.y, ball.width, ball.height, STEP_DX, STEP_DY,
+			paddle.x, paddle.y, paddle.width, paddle.height, hit);
+		return hit.time;
+	}
+
+	@Benchmark
+	public boolean sweptApart() {
+		return Collision.sweep(ball.x + 300f, ball.y, ball.width, ball.height, -STEP_DX, STEP_DY,
+			paddle.x, paddle.y, paddle.width, paddle.height, hit);
+	}
+}
@@ -0,0 +1,78 @@
+package com.zerologic.pong.bench;
+
+import com.zerologic.pong.engine.components.EntityStore;
+import org.joml.Vector2f;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moving every entity by its velocity with the state in an {@code EntityStore} against one object per entity
+ * holding {@code Vector2f}s, the way {@code GameObject} used to store it. The objects are shuffled after creation
+ * like objects created and destroyed over a session end up spread over the heap.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntityStoreBenchmark {
+
+	private static final float DT = 1f / 120f;
+
+	static class Entity {
+		final Vector2f pos = new Vector2f();
+		final Vector2f size = new Vector2f();
+		final Vector2f velocity = new Vector2f();
+	}
+
+	@Param({ "1000", "10000", "100000" })
+	int entities;
+
+	private EntityStore store;
+	private Entity[] objects;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		Random random = new Random(42);
+		store = new EntityStore(entities);
+		List<Entity> list = new ArrayList<>(entities);
+
+		for (int i = 0; i < entities; i++) {
+			float x = random.nextFloat() * 1280f, y = random.nextFloat() * 720f;
+			float vx = random.nextFloat() * 200f - 100f, vy = random.nextFloat() * 200f - 100f;
+
+			store.setVelocity(store.create(x, y, 20f, 20f), vx, vy);
+
+			Entity entity = new Entity();
+			entity.pos.set(x, y);
+			entity.size.set(20f, 20f);
+			entity.velocity.set(vx, vy);
+			list.add(entity);
+		}
+
+		Collections.shuffle(list, random);
+		objects = list.toArray(new Entity[0]);
+	}
+
+	@Benchmark
+	public EntityStore packedArrays() {
+		store.integrate(DT);
+		return store;
+	}
+
+	@Benchmark
+	public Entity[] objects() {
+		for (Entity entity : objects) {
+			entity.pos.x += entity.velocity.x * DT;
+			entity.pos.y += entity.velocity.y * DT;
+		}
+		return objects;
+	}
+}
@@ -0,0 +1,36 @@
+package com.zerologic.pong.bench;
+
+import com.zerologic.pong.engine.components.gui.uitext.LoadedFont;
+import com.zerologic.pong.engine.components.gui.uitext.UIFontLoader;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FontLookupBenchmark {
+
+	// The sizes the game loads, in the order it loads them
+	private static final float[] SIZES = { 51f, 70f, 30f, 90f, 100f };
+
+	@Param({"51", "100"})
+	public float size;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		UIFontLoader.init(null, Fonts.path());
+
+		for (float s : SIZES) {
+			UIFontLoader.register(UIFontLoader.loadFont(s));
+		}
+	}
+
+	@Benchmark
+	public LoadedFont getFontBySize() {
+		return UIFontLoader.getFontBySize(size);
+	}
+}
@@ -0,0 +1,30 @@
+package com.zerologic.pong.bench;
+
+import java.io.File;
+
+// Locates a TrueType font for the text benchmarks, override with -Dpong.bench.font=<path>
+final class Fonts {
+
+	private static final String[] CANDIDATES = {
+		"C:/Windows/Fonts/Arial.ttf",
+		"/usr/share/fonts/truetype/dejavu/DejaVuSans.ttf",
+		"/Library/Fonts/Arial.ttf",
+		"/System/Library/Fonts/Supplemental/Arial.ttf"
+	};
+
+	private Fonts() {}
+
+	static String path() {
+		String override = System.getProperty("pong.bench.font");
+		if (override != null) {
+			return override;
+		}
+
+		for (String candidate : CANDIDATES) {
+			if (new File(candidate).exists()) {
+				return candidate;
+			}
+		}
+		throw new IllegalStateException("No font found, set -Dpong.bench.font=<path to a .ttf>");
+	}
+}
@@ -0,0 +1,172 @@
+package com.zerologic.pong.bench;
+
+import com.zerologic.pong.Game;
+import com.zerologic.pong.PongScene;
+import com.zerologic.pong.PongSimulation;
+import com.zerologic.pong.PongSimulation.GAMESTATE;
+import com.zerologic.pong.engine.GLState;
+import com.zerologic.pong.engine.Metrics;
+import com.zerologic.pong.engine.ShaderProgram;
+import com.zerologic.pong.engine.TextureAtlas;
+import com.zerologic.pong.engine.components.Renderer;
+import com.zerologic.pong.engine.components.gui.uitext.UIFontLoader;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.lwjgl.opengl.GL33.*;
+
+/**
+ * One frame of the game loop against {@link RecordingGL}: metrics bracketing, input and simulation ticks and the
+ * game's own {@code PongScene} rendering the menu, the game, the pause and the win screen with the metrics overlay
+ * on. Everything up to the GL boundary runs like in the game, the renderer's batches, the text and score drawing
+ * and the uniform uploads, only the driver does nothing.
+ * <p>
+ * Run with {@code -prof gc}, {@code gc.alloc.rate.norm} should stay at 0 B/op. Running the class itself steps the
+ * frame directly and fails unless a window of frames after the warm-up allocates exactly 0 bytes, {@code mvn verify}
+ * runs it that way. More than one window is measured since the JIT allocates on this thread when it recompiles:
+ * {@code java -cp target/benchmarks.jar com.zerologic.pong.bench.FrameAllocationBenchmark [frames]}
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrameAllocationBenchmark {
+
+	private static final float WIDTH = 1280f;
+	private static final float HEIGHT = 720f;
+
+	private static final float DT = 1f / 120f;
+	private static final int TICKS_PER_FRAME = 2;
+
+	// Every cycle shows the menu and the pause screen for a while, the win screen shows up whenever a match ends
+	private static final int FRAMES_PER_CYCLE = 600;
+	private static final int MENU_FRAMES = 20;
+	private static final int PAUSE_START = 300;
+	private static final int PAUSE_FRAMES = 20;
+	private static final int WIN_FRAMES = 30;
+
+	private static final int WARMUP_FRAMES = 50_000;
+	private static final int WINDOWS = 3;
+
+	private PongSimulation sim;
+	private PongScene scene;
+
+	private final float[] mousePos = Game.getMousePosReference();
+
+	private int frame = 0;
+	private int winFrames = 0;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		RecordingGL.install();
+
+		GLState.setBlend(true);
+		GLState.blendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
+
+		UIFontLoader.enableSdf(48f);
+		ShaderProgram textShader = new ShaderProgram("shaders/textVert.glsl", "shaders/textSdfFrag.glsl");
+		new ShaderProgram("shaders/vertex.glsl", "shaders/fragment.glsl");
+		Renderer.setInstancedShader(new ShaderProgram("shaders/vertexInstanced.glsl", "shaders/fragmentInstanced.glsl"));
+
+		UIFontLoader.init(textShader, UIFontLoader.prepare(1024, Fonts.path(), PongScene.FONT_SIZES));
+		TextureAtlas atlas = TextureAtlas.upload(TextureAtlas.packDirectory("textures", 2, 2048));
+
+		sim = new PongSimulation(WIDTH, HEIGHT, new Random(42));
+		scene = new PongScene(sim, atlas, WIDTH, HEIGHT, () -> {});
+		scene.metricsOverlay().toggle();
+	}
+
+	@Benchmark
+	public void frame() {
+		Metrics.beginFrame();
+
+		Metrics.begin(Metrics.Phase.INPUT);
+		input();
+		Metrics.end(Metrics.Phase.INPUT);
+
+		Metrics.begin(Metrics.Phase.SIMULATION);
+		for (int tick = 0; tick < TICKS_PER_FRAME; tick++) {
+			// Paddles that only twitch miss often, so points are scored and matches end
+			sim.setPaddle1Input(frame & 1);
+			sim.setPaddle2Input(-(frame & 1));
+			sim.serve();
+			sim.step(DT);
+		}
+		Metrics.end(Metrics.Phase.SIMULATION);
+
+		Metrics.begin(Metrics.Phase.RENDER);
+		scene.render((frame & 3) / 4f);
+		Metrics.end(Metrics.Phase.RENDER);
+
+		Metrics.endFrame();
+		frame++;
+	}
+
+	// Stands in for the key and cursor callbacks: switches between the screens and sweeps the cursor over the buttons
+	private void input() {
+		mousePos[0] = (frame * 7) % WIDTH;
+		mousePos[1] = HEIGHT / 2f;
+
+		if (sim.state() == GAMESTATE.PLAYER_WIN) {
+			if (++winFrames == WIN_FRAMES) {
+				winFrames = 0;
+				sim.restart();
+			}
+			return;
+		}
+
+		int cycle = frame % FRAMES_PER_CYCLE;
+		if (cycle < MENU_FRAMES) {
+			sim.setState(GAMESTATE.MENU);
+		} else if (cycle >= PAUSE_START && cycle < PAUSE_START + PAUSE_FRAMES) {
+			sim.setState(GAMESTATE.PAUSED);
+		} else {
+			sim.setState(GAMESTATE.ACTIVE);
+		}
+	}
+
+	public static void main(String[] args) {
+		// A window has to run for longer than the overlay takes between refreshes, or it never measures one
+		int frames = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		threads.setThreadAllocatedMemoryEnabled(true);
+
+		FrameAllocationBenchmark benchmark = new FrameAllocationBenchmark();
+		benchmark.setup();
+
+		// Let the glyphs get rasterized, the batches grow to size and the frame get compiled
+		for (int i = 0; i < WARMUP_FRAMES; i++) {
+			benchmark.frame();
+		}
+
+		for (int window = 1; window <= WINDOWS; window++) {
+			long calls = RecordingGL.totalCalls();
+			long draws = RecordingGL.calls("glDrawElements") + RecordingGL.calls("glDrawElementsInstanced");
+
+			long before = threads.getCurrentThreadAllocatedBytes();
+			for (int i = 0; i < frames; i++) {
+				benchmark.frame();
+			}
+			long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+			System.out.printf("%d frames, %d GL calls (%d draws), %d bytes allocated (%.3f per frame)%n", frames,
+					RecordingGL.totalCalls() - calls,
+					RecordingGL.calls("glDrawElements") + RecordingGL.calls("glDrawElementsInstanced") - draws,
+					allocated, allocated / (double) frames);
+
+			if (allocated == 0) {
+				return;
+			}
+		}
+
+		System.err.println("The steady state frame allocates");
+		System.exit(1);
+	}
+}
@@ -0,0 +1,43 @@
+package com.zerologic.pong.bench;
+
+import com.zerologic.pong.engine.ShaderProgram;
+import org.joml.Matrix4f;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// ShaderProgram.setMatrix4f on a linked program against RecordingGL, an unchanged matrix is checked against the
+// cached value and skipped, a changed one is also uploaded through LWJGL's glUniformMatrix4fv
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatrixUploadBenchmark {
+
+	private final Matrix4f model = new Matrix4f();
+	private ShaderProgram program;
+	private int modelUniform;
+	private float x;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		RecordingGL.install();
+
+		program = new ShaderProgram("shaders/vertex.glsl", "shaders/fragment.glsl");
+		program.use();
+		modelUniform = program.uniform("model");
+	}
+
+	@Benchmark
+	public void unchanged() {
+		program.setMatrix4f(modelUniform, model.translation(50f, 260f, 0f));
+	}
+
+	@Benchmark
+	public void changed() {
+		x += 1f;
+		program.setMatrix4f(modelUniform, model.translation(x, 260f, 0f));
+	}
+}
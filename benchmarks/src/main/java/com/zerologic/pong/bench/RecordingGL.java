@@ -0,0 +1,233 @@
+package com.zerologic.pong.bench;
+
+import org.lwjgl.opengl.GL;
+import org.lwjgl.system.CallbackI;
+import org.lwjgl.system.Configuration;
+import org.lwjgl.system.FunctionProvider;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.lwjgl.opengl.GL33.*;
+import static org.lwjgl.system.MemoryUtil.*;
+import static org.lwjgl.system.dyncall.DynCallback.*;
+
+/**
+ * A stand-in for an OpenGL driver, so code that issues GL calls can run without a window or GPU. Every GL entry
+ * point LWJGL asks for is a native stub that counts its calls and does nothing else, except for the few calls whose
+ * results the engine reads back: object names are handed out in sequence, shaders compile and link, and every
+ * program reports a {@code model} and a {@code color} uniform so the uniform setters run their real path.
+ * <p>
+ * The stubs are reached through LWJGL's regular call path, everything up to the driver boundary runs as it would
+ * with a context. Nothing is drawn, the counts are all there is to inspect.
+ */
+
+final class RecordingGL {
+
+	private static final int GL_MAJOR_VERSION = 0x821B;
+	private static final int GL_MINOR_VERSION = 0x821C;
+
+	private static final String[] UNIFORMS = { "model", "color" };
+
+	private static final Map<String, Integer> ids = new HashMap<>();
+	private static long[] addresses = new long[0];
+	private static long[] counts = new long[0];
+
+	private static int nextName = 1;
+	private static long version;
+
+	private RecordingGL() {}
+
+	/**
+	 * Create GL capabilities backed by the stubs and make them current on this thread.
+	 */
+
+	static void install() {
+		version = memAddress(memUTF8("3.3.0 RecordingGL")); // Never freed, the stubs hand it out until the process ends
+
+		Configuration.OPENGL_EXPLICIT_INIT.set(true); // Otherwise GL loads the system's libGL when it's first used
+		GL.create((FunctionProvider) RecordingGL::address);
+		GL.createCapabilities();
+	}
+
+	/**
+	 * @return The calls made to a GL function so far, 0 for functions that were never resolved.
+	 */
+
+	static long calls(String function) {
+		Integer id = ids.get(function);
+		return id == null ? 0 : counts[id];
+	}
+
+	/**
+	 * @return The calls made to all GL functions so far.
+	 */
+
+	static long totalCalls() {
+		long total = 0;
+		for (long count : counts) {
+			total += count;
+		}
+		return total;
+	}
+
+	private static long address(ByteBuffer functionName) {
+		String name = memASCII(memAddress(functionName)); // Up to the terminating null
+
+		Integer existing = ids.get(name);
+		if (existing != null) {
+			return addresses[existing];
+		}
+
+		int id = ids.size();
+		ids.put(name, id);
+		counts = Arrays.copyOf(counts, id + 1);
+
+		// Every call to address() creates a new native closure, each stub gets exactly one
+		addresses = Arrays.copyOf(addresses, id + 1);
+		addresses[id] = stub(name, id).address();
+		return addresses[id];
+	}
+
+	private static CallbackI stub(String name, int id) {
+		switch (name) {
+			case "glGetIntegerv":
+				return new Stub("(ip)p", id) {
+					@Override
+					long call(long args) {
+						int pname = dcbArgInt(args);
+						long params = dcbArgPointer(args);
+						memPutInt(params, switch (pname) {
+							case GL_MAJOR_VERSION -> 3;
+							case GL_MINOR_VERSION -> 3;
+							default -> 0; // No extensions and nothing else
+						});
+						return 0;
+					}
+				};
+			case "glGetString":
+			case "glGetStringi":
+				return new Stub("(i)p", id) {
+					@Override
+					long call(long args) {
+						return version;
+					}
+				};
+			case "glGenBuffers":
+			case "glGenVertexArrays":
+			case "glGenTextures":
+				return new Stub("(ip)p", id) {
+					@Override
+					long call(long args) {
+						int n = dcbArgInt(args);
+						long out = dcbArgPointer(args);
+						for (int i = 0; i < n; i++) {
+							memPutInt(out + i * 4L, nextName++);
+						}
+						return 0;
+					}
+				};
+			case "glCreateShader":
+			case "glCreateProgram":
+				return new Stub("()p", id) {
+					@Override
+					long call(long args) {
+						return nextName++;
+					}
+				};
+			case "glGetShaderiv":
+			case "glGetProgramiv":
+				return new Stub("(iip)p", id) {
+					@Override
+					long call(long args) {
+						dcbArgInt(args);
+						int pname = dcbArgInt(args);
+						long params = dcbArgPointer(args);
+						memPutInt(params, switch (pname) {
+							case GL_ACTIVE_UNIFORMS -> UNIFORMS.length;
+							case GL_ACTIVE_UNIFORM_MAX_LENGTH -> 16;
+							case GL_INFO_LOG_LENGTH -> 0;
+							default -> GL_TRUE; // Compile and link status
+						});
+						return 0;
+					}
+				};
+			case "glGetActiveUniform":
+				return new Stub("(iiipppp)p", id) {
+					@Override
+					long call(long args) {
+						dcbArgInt(args);
+						int index = dcbArgInt(args);
+						int bufSize = dcbArgInt(args);
+						long length = dcbArgPointer(args);
+						long size = dcbArgPointer(args);
+						long type = dcbArgPointer(args);
+						long name = dcbArgPointer(args);
+
+						String uniform = UNIFORMS[index];
+						memASCII(uniform, true, memByteBuffer(name, bufSize));
+						memPutInt(length, uniform.length());
+						memPutInt(size, 1);
+						memPutInt(type, uniform.equals("model") ? GL_FLOAT_MAT4 : GL_FLOAT_VEC4);
+						return 0;
+					}
+				};
+			case "glGetUniformLocation":
+				return new Stub("(ip)p", id) {
+					@Override
+					long call(long args) {
+						dcbArgInt(args);
+						String uniform = memUTF8(dcbArgPointer(args));
+						for (int i = 0; i < UNIFORMS.length; i++) {
+							if (UNIFORMS[i].equals(uniform)) {
+								return i;
+							}
+						}
+						return -1;
+					}
+				};
+			case "glGetUniformBlockIndex":
+				return new Stub("(ip)p", id) {
+					@Override
+					long call(long args) {
+						return 0; // Every program has the camera block
+					}
+				};
+			default:
+				// Arguments are left unread, the caller cleans them up and every return register reads 0
+				return new Stub("()p", id) {
+					@Override
+					long call(long args) {
+						return 0;
+					}
+				};
+		}
+	}
+
+	private abstract static class Stub implements CallbackI.P {
+
+		private final String signature;
+		private final int id;
+
+		Stub(String signature, int id) {
+			this.signature = signature;
+			this.id = id;
+		}
+
+		@Override
+		public String getSignature() {
+			// Every stub returns a pointer sized value, for void and int functions the caller ignores or truncates it
+			return signature;
+		}
+
+		@Override
+		public long callback(long args) {
+			counts[id]++;
+			return call(args);
+		}
+
+		abstract long call(long args);
+	}
+}
@@ -0,0 +1,38 @@
+package com.zerologic.pong.bench;
+
+import com.zerologic.pong.PongSimulation;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimulationBenchmark {
+
+	private static final float DT = 1f / 120f;
+
+	private PongSimulation sim;
+
+	@Setup(Level.Iteration)
+	public void setup() {
+		sim = new PongSimulation(1280f, 720f, new Random(42));
+		sim.restart();
+	}
+
+	// One tick of a rally, the ball is served again whenever a point was scored
+	@Benchmark
+	public PongSimulation.Body ballTick() {
+		if (sim.state() == PongSimulation.GAMESTATE.PLAYER_WIN) {
+			sim.restart();
+		}
+
+		sim.serve();
+		sim.step(DT);
+		return sim.ball;
+	}
+}
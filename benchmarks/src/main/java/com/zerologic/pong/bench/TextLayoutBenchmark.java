@@ -0,0 +1,40 @@
+package com.zerologic.pong.bench;
+
+import com.zerologic.pong.engine.components.gui.uitext.GlyphAtlas;
+import com.zerologic.pong.engine.components.gui.uitext.LoadedFont;
+import com.zerologic.pong.engine.components.gui.uitext.UIFontLoader;
+import com.zerologic.pong.engine.components.gui.uitext.UIText;
+import org.joml.Vector2f;
+import org.lwjgl.BufferUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.FloatBuffer;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextLayoutBenchmark {
+
+	@Param({"5", "ZeroLogic Games", "Player 1 wins!\nPress restart to play again"})
+	public String text;
+
+	private LoadedFont font;
+	private final FloatBuffer vertices = BufferUtils.createFloatBuffer(1024);
+	private final GlyphAtlas.Glyph[] glyphs = new GlyphAtlas.Glyph[256];
+	private final Vector2f size = new Vector2f();
+
+	@Setup(Level.Trial)
+	public void setup() {
+		UIFontLoader.init(null, Fonts.path());
+		font = UIFontLoader.loadFont(90f);
+	}
+
+	@Benchmark
+	public int layout() {
+		return UIText.layout(font, text, vertices, glyphs, size);
+	}
+}
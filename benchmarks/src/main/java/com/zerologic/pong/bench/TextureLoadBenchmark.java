@@ -0,0 +1,76 @@
+package com.zerologic.pong.bench;
+
+import com.zerologic.pong.engine.Ptex;
+import com.zerologic.pong.engine.PtexConverter;
+import com.zerologic.pong.engine.Resources;
+import org.lwjgl.BufferUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.concurrent.TimeUnit;
+
+import static org.lwjgl.stb.STBImage.*;
+
+/**
+ * CPU side cost of getting a texture ready for upload: decoding the PNG versus reading a pre-decoded ptex.
+ * The GL upload itself needs a context and isn't measured, the PNG path additionally runs
+ * {@code glGenerateMipmap} there, while a ptex uploads its stored mip chain.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextureLoadBenchmark {
+
+	@Param({"textures/menu/logo.png", "textures/menu/playbtn.png"})
+	public String texture;
+
+	private ByteBuffer png;
+	private ByteBuffer ptexRaw;
+	private ByteBuffer ptexLz4;
+
+	private final IntBuffer w = BufferUtils.createIntBuffer(1);
+	private final IntBuffer h = BufferUtils.createIntBuffer(1);
+	private final IntBuffer comp = BufferUtils.createIntBuffer(1);
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		png = copy(Resources.read(texture));
+		ptexRaw = wrap(PtexConverter.encode(png, Ptex.CODEC_RAW));
+		ptexLz4 = wrap(PtexConverter.encode(png, Ptex.CODEC_LZ4));
+
+		System.out.printf("%n%s: png %d bytes, ptex raw %d bytes, ptex lz4 %d bytes%n",
+			texture, png.remaining(), ptexRaw.remaining(), ptexLz4.remaining());
+	}
+
+	@Benchmark
+	public int decodePng() {
+		ByteBuffer pixels = stbi_load_from_memory(png, w, h, comp, 4);
+		int size = pixels.remaining();
+		stbi_image_free(pixels);
+		return size;
+	}
+
+	@Benchmark
+	public Ptex readPtexRaw() throws IOException {
+		return Ptex.read(ptexRaw);
+	}
+
+	@Benchmark
+	public Ptex readPtexLz4() throws IOException {
+		return Ptex.read(ptexLz4);
+	}
+
+	private static ByteBuffer copy(ByteBuffer data) {
+		return BufferUtils.createByteBuffer(data.remaining()).put(data.duplicate()).flip();
+	}
+
+	private static ByteBuffer wrap(byte[] data) {
+		return BufferUtils.createByteBuffer(data.length).put(data).flip();
+	}
+}
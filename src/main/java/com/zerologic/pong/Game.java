@@ -1,13 +1,20 @@
 package com.zerologic.pong;
 
+import com.zerologic.pong.PongSimulation.GAMESTATE;
+import com.zerologic.pong.engine.AssetHandle;
+import com.zerologic.pong.engine.AssetLoader;
+import com.zerologic.pong.engine.Camera;
+import com.zerologic.pong.engine.GLResources;
+import com.zerologic.pong.engine.GLState;
+import com.zerologic.pong.engine.Metrics;
+import com.zerologic.pong.engine.Metrics.Phase;
 import com.zerologic.pong.engine.ShaderProgram;
+import com.zerologic.pong.engine.TextureAtlas;
+import com.zerologic.pong.engine.TextureCache;
 import com.zerologic.pong.engine.Time;
-import com.zerologic.pong.engine.components.GameObject;
 import com.zerologic.pong.engine.components.Renderer;
 
-import com.zerologic.pong.engine.components.gui.input.Button;
 import com.zerologic.pong.engine.components.gui.uitext.UIFontLoader;
-import com.zerologic.pong.engine.components.gui.uitext.UIText;
 
 import org.lwjgl.glfw.GLFWVidMode;
 import org.lwjgl.opengl.*;
@@ -15,7 +22,9 @@ import static org.lwjgl.opengl.GL46.*;
 import static org.lwjgl.glfw.GLFW.*;
 import static org.lwjgl.system.MemoryUtil.*;
 
-import java.util.Random;
+import java.io.IOException;
+import java.nio.file.Path;
+
 
 /**
  * @author Dilan Shabani
@@ -40,58 +49,40 @@ public class Game {
 
 	private static ShaderProgram program;
 	private static ShaderProgram textShader;
+	private static ShaderProgram instancedShader;
 
-	// Mouse position vector
-	private final static float[] mousePos = new float[2];
-
-	// Menu objects
-	private GameObject logo;
-	private Button playBtn;
-	private Button quitBtn;
-	private Button resetBtn;
-
-	// Game objects
-	private GameObject paddle1;
-	private GameObject paddle2;
-	private GameObject ball;
-
-	// Text objects
-	private UIText text_pts_p1;
-	private UIText text_pts_p2;
-	private UIText pauseText;
-	private UIText ownership;
-
-	// Game attributes
-	private float paddle1Speed = 1000f;
-	private float paddle2Speed = 1000f;
+	// All menu and sprite textures packed together
+	private TextureAtlas atlas;
 
-	private int ballDirection = -1;
-	private int dirToServe = 1;
+	// Mouse position vector and left button state, written by the window callbacks
+	private final static float[] mousePos = new float[2];
+	private static boolean mouseDown = false;
 
-	private float ballSpeed = 500.0f;
-	private float ballIncSpeed = 50.0f;
-	private float ballAngle = 45.0f;
+	// Everything drawn, the menus, the game and the debug overlay
+	private PongScene scene;
 
-	private final int maxRandomAngle = 45;
+	// Fixed simulation timestep
+	private static final float TICK_RATE = 120f;
+	private static final int MAX_TICKS_PER_FRAME = 8;
 
-	private float origBallSpeed = ballSpeed; // Purpose is to reset the speed to the same if someone loses a point.
-	
-	// Player points
-	private int pts_p1 = 0;
-	private int pts_p2 = 0;
-	
-	Random random = new Random();
+	// All gameplay state, the game only renders it and feeds it input
+	private PongSimulation sim;
 
-	enum GAMESTATE {
-		MENU,
-		ACTIVE,
-		PAUSED,
-		PLAYER_WIN
-	}
-	
-	GAMESTATE state = GAMESTATE.MENU;
+	// Asset loading, files are read and decoded on workers while the window is created
+	private static final String FONT_PATH = "C:/Windows/Fonts/Arial.ttf";
+	private static final long UPLOAD_BUDGET_NANOS = 2_000_000L; // GL upload time per frame for assets loaded while running
+	private AssetLoader assets;
 	
 	void init() {
+		assets = new AssetLoader(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+		UIFontLoader.enableSdf(48f); // One set of distance field glyphs serves every text size
+
+		AssetHandle<ShaderProgram> textShaderAsset = assets.loadShader("shaders/textVert.glsl", "shaders/textSdfFrag.glsl");
+		AssetHandle<ShaderProgram> programAsset = assets.loadShader("shaders/vertex.glsl", "shaders/fragment.glsl");
+		AssetHandle<ShaderProgram> instancedAsset = assets.loadShader("shaders/vertexInstanced.glsl", "shaders/fragmentInstanced.glsl");
+		AssetHandle<UIFontLoader.PreparedFont> fontAsset = assets.load(FONT_PATH, () -> UIFontLoader.prepare(1024, FONT_PATH, PongScene.FONT_SIZES), font -> font);
+		AssetHandle<TextureAtlas> atlasAsset = assets.load("textures", () -> TextureAtlas.packDirectory("textures", 2, 2048), TextureAtlas::upload);
+
 		glfwInit();
 
 		monitor = glfwGetPrimaryMonitor();
@@ -115,19 +106,43 @@ public class Game {
 
 		GL.createCapabilities(); // Call after window has been placed correctly
 
-		// Load shader programs (create the main program last to avoid an unnecessary use() call)
-		textShader = new ShaderProgram("./src/main/resources/shaders/textVert.glsl", "./src/main/resources/shaders/textFrag.glsl");
-		program = new ShaderProgram("./src/main/resources/shaders/vertex.glsl", "./src/main/resources/shaders/fragment.glsl");
+		// Everything is drawn with alpha blending, set once through the state cache
+		GLState.setBlend(true);
+		GLState.blendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
+
+		// Compile the shaders and upload the textures the workers have finished meanwhile
+		assets.finishAll();
+
+		textShader = textShaderAsset.get();
+		program = programAsset.get();
+		instancedShader = instancedAsset.get();
+
+		Renderer.setInstancedShader(instancedShader); // Paddles and ball share one unit quad
 
-		UIFontLoader.init(textShader, "C:/Windows/Fonts/Arial.ttf"); // Initialize font loader
+		UIFontLoader.init(textShader, fontAsset.get()); // Initialize font loader
+
+		// Simulation rate, rendering interpolates between ticks
+		Time.setTickRate(TICK_RATE);
+		Time.setMaxTicksPerFrame(MAX_TICKS_PER_FRAME);
+
+		sim = new PongSimulation(win_width, win_height);
 
 		// Callback for any key events that don't need to be constantly and instantly
 		// updated, this is good for single key-press events.
 		glfwSetKeyCallback(window, (window, key, scancode, action, mods) -> {
-			if ((key == GLFW_KEY_ESCAPE && action == GLFW_PRESS) && state == GAMESTATE.PAUSED) {
-				state = GAMESTATE.ACTIVE;
-			} else if ((key == GLFW_KEY_ESCAPE && action == GLFW_PRESS) && state == GAMESTATE.ACTIVE) {
-				state = GAMESTATE.PAUSED;
+			if ((key == GLFW_KEY_ESCAPE && action == GLFW_PRESS) && sim.state() == GAMESTATE.PAUSED) {
+				sim.setState(GAMESTATE.ACTIVE);
+			} else if ((key == GLFW_KEY_ESCAPE && action == GLFW_PRESS) && sim.state() == GAMESTATE.ACTIVE) {
+				sim.setState(GAMESTATE.PAUSED);
+			}
+
+			// Frame metrics, F3 shows the overlay and F4 writes every recorded frame to the working directory
+			if (key == GLFW_KEY_F3 && action == GLFW_PRESS) {
+				scene.metricsOverlay().toggle();
+			}
+
+			if (key == GLFW_KEY_F4 && action == GLFW_PRESS) {
+				dumpMetrics();
 			}
 
 			if (key == GLFW_KEY_F11 && action == GLFW_PRESS) {
@@ -148,38 +163,23 @@ public class Game {
 			mousePos[1] = (float) ypos;
 		});
 
+		// Mouse button callback, buttons read the state when they are drawn
+		glfwSetMouseButtonCallback(window, (window, button, action, mods) -> {
+			if (button == GLFW_MOUSE_BUTTON_LEFT) {
+				mouseDown = action == GLFW_PRESS;
+			}
+		});
+
 		// Framebuffer callback to correctly update the viewport
 		glfwSetFramebufferSizeCallback(window, (window, width, height) -> {
 			win_width  = width;
 			win_height = height;
 
-			// Auto resize of objects from callback
-			// Auto set menu
-			logo.setPos(win_width / 2 - logo.width() / 2, 100);
-
-			playBtn.setPos(win_width / 2f - playBtn.width() / 2f, win_height / 2f - playBtn.height() / 2f);
-			quitBtn.setPos(win_width / 2f - quitBtn.width() / 2f, playBtn.y() + playBtn.height() + 20f);
-			resetBtn.setPos(win_width / 2f - resetBtn.width() / 2f, quitBtn.y() - resetBtn.height() - 20f);
+			// Auto resize of objects from callback, the simulation re-centers the paddles and ball and scales their speeds
+			sim.resize(win_width, win_height);
+			scene.resize(win_width, win_height);
 
-			ownership.setPos(5, win_height - ownership.height());
-			pauseText.setPos(win_width / 2 - pauseText.width() / 2, (win_height / 2) - 100f - pauseText.height() / 2);
-
-			// Auto set game objects
-			paddle1.setPos(50.0f, win_height / 2f - paddle1.height() / 2f);
-			paddle2.setPos(win_width - paddle2.width() - 50.0f, (win_height / 2f) - paddle2.height() / 2f);
-			ball.setPos(win_width / 2f - ball.width() / 2f, win_height / 2f - ball.height() / 2f);
-			text_pts_p2.setPos(win_width - text_pts_p2.width(), 0);
-
-			// Scaling paddle and ball speeds
-			paddle1Speed = 1000 * (win_height / 720f);
-			paddle2Speed = paddle1Speed;
-
-			ballSpeed = 500 * (win_width / 1280f);
-			origBallSpeed = 500 * (win_width / 1280f);
-			ballIncSpeed = 50 * (win_width / 1280f);
-
-			program.initMatrices();
-			textShader.initMatrices();
+			Camera.setViewport(win_width, win_height); // Written once for every program on the next frame
 			glViewport(0, 0, width, height);
 		});
 
@@ -187,60 +187,9 @@ public class Game {
 		glfwSetWindowAspectRatio(window, 16, 9);
 		glfwSetWindowSizeLimits(window, 915, 515, GLFW_DONT_CARE, GLFW_DONT_CARE);
 		
-		// GameObjects for the menu
-		logo = new GameObject(258.0f, 116.0f);
-		logo.setTexture("src/main/resources/textures/menu/logo.png", true, GL_RGBA);
-		logo.setPos(win_width / 2 - logo.width() / 2, 100);
-
-		playBtn = new Button("Play", 51f);
-		playBtn.setPos(win_width / 2f - playBtn.width() / 2f, win_height / 2f - playBtn.height() / 2f);
-		playBtn.setColor(1f, 1f, 1f, 1f);
-		playBtn.setHoverColor(1f, 0f, 0f, 1f);
-		playBtn.onMouseUp(() -> state = GAMESTATE.ACTIVE);
-		playBtn.setClickColor(0f, 0f, 1f, 1f);
-
-		quitBtn = new Button("Quit", 51f);
-		quitBtn.setPos(win_width / 2f - quitBtn.width() / 2f, playBtn.y() + playBtn.height() + 20f);
-		quitBtn.setColor(1f, 1f, 1f, 1f);
-		quitBtn.onMouseUp(() -> glfwSetWindowShouldClose(window, true));
-		quitBtn.setHoverColor(1f, 0f, 0f, 1f);
-		quitBtn.setClickColor(0f, 0f, 1f, 1f);
-
-		resetBtn = new Button("Restart", 51f);
-		resetBtn.setPos(win_width / 2f - resetBtn.width() / 2f, quitBtn.y() - resetBtn.height() - 20f);
-		resetBtn.setColor(1f, 1f, 1f, 1f);
-		resetBtn.setHoverColor(1f, 0f, 0f, 1f);
-		resetBtn.setClickColor(0f, 0f, 1f, 1f);
-		resetBtn.onMouseUp(() -> {
-			pts_p1 = 0;
-			pts_p2 = 0;
-			state = GAMESTATE.ACTIVE;
-		});
-
-		pauseText = new UIText("Game Paused", 70f);
-		pauseText.setColor(1f, 1f, 1f, 1f);
-		pauseText.setPos(win_width / 2 - pauseText.width() / 2, (win_height / 2) - 100f - pauseText.height() / 2);
-		
-		ownership = new UIText("ZeroLogic Games", 30f);
-		ownership.setColor(1f, 1f, 1f, 1f);
-		ownership.setPos(0f, win_height - ownership.height());
-		
-		// GameObjects for actual game
-		paddle1 = new GameObject(25.0f, 200.0f);
-		paddle1.setPos(50.0f, win_height / 2.0f - paddle1.height() / 2.0f);
-		
-		paddle2 = new GameObject(25.0f, 200.0f);
-		paddle2.setPos(win_width - paddle2.width() - 50.0f, (win_height / 2f) - paddle2.height() / 2f);
-		
-		ball = new GameObject(20.0f, 20.0f);
-		ball.setPos(win_width / 2f - ball.width() / 2f, win_height / 2f - ball.height() / 2f);
+		atlas = atlasAsset.get();
 
-		text_pts_p1 = new UIText(Integer.toString(pts_p1), 90f);
-		text_pts_p1.setColor(1f, 1f, 1f, 1f);
-
-		text_pts_p2 = new UIText(pts_p2, 90f);
-		text_pts_p2.setColor(1f, 1f, 1f, 1f);
-		text_pts_p2.setPos(win_width - text_pts_p2.width(), 0);
+		scene = new PongScene(sim, atlas, win_width, win_height, () -> glfwSetWindowShouldClose(window, true));
 
 		glfwShowWindow(window);
 	}
@@ -250,181 +199,86 @@ public class Game {
 		//glClearColor(0.2f, 0.2f, 0.4f, 1.0f);
 
 		while (!glfwWindowShouldClose(window)) {
-			glClear(GL_COLOR_BUFFER_BIT);
+			Metrics.beginFrame();
 
-			// Check for win condition before the game draws a new frame to avoid weird effects
-			if(pts_p1 == 5 || pts_p2 == 5) {
-				state = GAMESTATE.PLAYER_WIN;
-			}
+			Metrics.begin(Phase.INPUT);
+			glfwPollEvents();
+			Metrics.end(Phase.INPUT);
 
-			switch (state) {
-				case MENU -> drawMenu();
-				case ACTIVE -> drawGame();
-				case PAUSED -> drawPause();
-				case PLAYER_WIN -> drawWin();
+			// Run the simulation in fixed ticks, independent of the frame rate
+			Metrics.begin(Phase.SIMULATION);
+			Time.calcTime();
+			while (Time.nextTick()) {
+				update(Time.tickDeltaf());
 			}
+			Metrics.end(Phase.SIMULATION);
 
-			Time.calcTime();
-			processInput();
-			glfwPollEvents();
+			Metrics.begin(Phase.RENDER);
+			assets.update(UPLOAD_BUDGET_NANOS);
+			scene.render(Time.alpha());
+			Metrics.end(Phase.RENDER);
+
+			Metrics.begin(Phase.SWAP);
 			glfwSwapBuffers(window);
+			Metrics.end(Phase.SWAP);
+
+			Metrics.endFrame();
 		}
 	}
 
+	// Advances the game by one fixed tick
+	void update(float dt) {
+		processInput();
+		sim.step(dt);
+	}
+
 	void processInput() {
 		// Player 1
-		if (glfwGetKey(window, GLFW_KEY_W) == GLFW_PRESS) {
-			if (paddle1.y() > 0) {
-				paddle1.addToY(-paddle1Speed * Time.deltaTimef());
-			} else if (paddle1.y() < 0) {
-				paddle1.setPos(paddle1.x(), 0f);
-			}
-		}
-
-		if (glfwGetKey(window, GLFW_KEY_S) == GLFW_PRESS) {
-			if (paddle1.y() < win_height - paddle1.height()) {
-				paddle1.addToY(paddle1Speed * Time.deltaTimef());
-			} else if (paddle1.y() > win_height - paddle1.height()) {
-				paddle1.setPos(paddle1.x(), win_height - paddle1.height());
-			}
-		}
+		sim.setPaddle1Input(axis(GLFW_KEY_W, GLFW_KEY_S));
 
 		// Player 2
-		if (glfwGetKey(window, GLFW_KEY_UP) == GLFW_PRESS) {
-			if (paddle2.y() > 0) {
-				paddle2.addToY(-paddle2Speed * Time.deltaTimef());
-			} else if (paddle2.y() < 0) {
-				paddle2.setPos(paddle2.x(), 0f);
-			}
-		}
+		sim.setPaddle2Input(axis(GLFW_KEY_UP, GLFW_KEY_DOWN));
 
-		if (glfwGetKey(window, GLFW_KEY_DOWN) == GLFW_PRESS) {
-			if (paddle2.y() < win_height - paddle2.height()) {
-				paddle2.addToY(paddle2Speed * Time.deltaTimef());
-			} else if (paddle2.y() > win_height - paddle2.height()) {
-				paddle2.setPos(paddle2.x(), win_height - paddle2.height());
-			}
-		}
-		
-		if (glfwGetKey(window, GLFW_KEY_SPACE) == GLFW_PRESS && state == GAMESTATE.ACTIVE && ballDirection == -1) {
-			ballDirection = dirToServe;
+		if (glfwGetKey(window, GLFW_KEY_SPACE) == GLFW_PRESS) {
+			sim.serve();
 		}
 	}
-	
-	void drawMenu() {
-		Renderer.draw(logo);
-		Renderer.draw(playBtn);
-		Renderer.draw(quitBtn);
-		Renderer.draw(ownership);
-	}
-	
-	void drawGame() {
-		checkBall();
-		Renderer.draw(paddle1);
-		Renderer.draw(paddle2);
-		Renderer.draw(ball);
-
-		Renderer.draw(text_pts_p1);
-		Renderer.draw(text_pts_p2);
-
-		text_pts_p1.setText(pts_p1);
-		text_pts_p2.setText(pts_p2);
-	}
-	
-	void drawPause() {
-		Renderer.draw(pauseText);
-		Renderer.draw(quitBtn);
-	}
-	
-	void drawWin()	{
-		UIText playerWon;
-
-		if (pts_p1 == 5) {
-			playerWon = new UIText("Player 1 wins!", 100f);
-			playerWon.setPos(win_width/2f - playerWon.width()/2f, win_height/2f - playerWon.height()/2f - 100);
-			playerWon.setColor(1f, 1f, 1f, 1f);
-			Renderer.draw(playerWon);
-		} else if (pts_p2 == 5) {
-			playerWon = new UIText("Player 2 wins!", 100f);
-			playerWon.setPos(win_width/2f - playerWon.width()/2f, win_height/2f - playerWon.height()/2f - 100);
-			playerWon.setColor(1f, 1f, 1f, 1f);
-			Renderer.draw(playerWon);
-		}
 
-		Renderer.draw(resetBtn);
-		Renderer.draw(quitBtn);
-	}
-	
-	void checkBall() {
-		
-		// Check direction of ball via an integer value
-		if (ballDirection == 0) {
-			ball.addPos(-ballSpeed * Time.deltaTimef(), (float)Math.cos(ballAngle) * 500f * Time.deltaTimef());
-		} else if (ballDirection == 1) {
-			ball.addPos(ballSpeed * Time.deltaTimef(), (float)Math.cos(ballAngle) * 500f * Time.deltaTimef());
-		}
+	// Returns -1 while only the up key is held, 1 while only the down key is held and 0 otherwise
+	private int axis(int upKey, int downKey) {
+		int input = 0;
 
-		// Ball dynamics
-		if (ball.y() < 0) {
-			ballAngle += 180;
-			ball.setPos(ball.x(), 0f);
-		}
-		
-		if (ball.y() > win_height - ball.height()) {
-			ballAngle += 180;
-			ball.setPos(ball.x(), win_height - ball.height());
+		if (glfwGetKey(window, upKey) == GLFW_PRESS) {
+			input -= 1;
 		}
 
-		int ballIncAngle;
-
-		if(checkCollision(ball, paddle1)) {
-			ballIncAngle = random.nextInt(maxRandomAngle);
-			ballAngle += ballIncAngle;
-			
-			ballDirection = 1;
-			ball.setPos(paddle1.x() + paddle1.width(), ball.y());
-			ballSpeed += ballIncSpeed;
-		}
-		
-		if(checkCollision(ball, paddle2)) {
-			ballIncAngle = random.nextInt(maxRandomAngle);
-			ballAngle += ballIncAngle;
-			
-			ballDirection = 0;
-			ball.setPos(paddle2.x() - ball.width(), ball.y());
-			ballSpeed += ballIncSpeed;
-		}
-		
-		// Point score condition
-		// Player one wins point
-		if (ball.x() > win_width + 100) {
-			ballDirection = -1;
-			ballSpeed = origBallSpeed;
-			dirToServe = 1;
-			pts_p1 += 1;
-			ball.setPos(win_width / 2 - ball.width() / 2, win_height / 2 - ball.height() / 2);
-		}
-		
-		// Player two wins point
-		if (ball.x() < -100) {
-			ballDirection = -1;
-			ballSpeed = origBallSpeed;
-			dirToServe = 0;
-			pts_p2 += 1;
-			ball.setPos(win_width / 2 - ball.width() / 2, win_height / 2 - ball.height() / 2);
+		if (glfwGetKey(window, downKey) == GLFW_PRESS) {
+			input += 1;
 		}
+		return input;
 	}
 	
-	private boolean checkCollision(GameObject first, GameObject second) {
-		if(first.x() + first.width() >= second.x() && first.x() <= second.x() + second.width()
-			&& first.y() + first.height() >= second.y() && first.y() <= second.y() + second.height()) {    	    // Checking for x-axis collision
-			return true;
+	private void dumpMetrics() {
+		try {
+			Metrics.dumpCsv(Path.of("metrics.csv"));
+			Metrics.dumpJson(Path.of("metrics.json"));
+			System.out.println("Wrote " + Path.of("metrics.csv").toAbsolutePath() + " and metrics.json");
+		} catch (IOException e) {
+			e.printStackTrace();
 		}
-		return false;
 	}
 
 	void cleanUp() {
+		assets.shutdown();
+		Renderer.destroy();
+		scene.destroy();
+		GLResources.destroy();
+		TextureCache.clear();
+		atlas.destroy();
 		UIFontLoader.destroy();
+		program.destroy();
+		textShader.destroy();
+		instancedShader.destroy();
 		glfwDestroyWindow(window);
 		glfwTerminate();
 		GL.destroy();
@@ -461,4 +315,8 @@ public class Game {
 		return mousePos;
 	}
 
+	public static boolean isMouseDown() {
+		return mouseDown;
+	}
+
 }
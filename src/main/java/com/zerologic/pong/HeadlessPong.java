@@ -0,0 +1,142 @@
+package com.zerologic.pong;
+
+import java.util.Random;
+
+/**
+ * Plays matches between two simple computer players on a {@code PongSimulation} without a window or GL
+ * context, stepping as fast as possible. The players react late and aim at a random spot on their paddle for every
+ * return, so they miss now and then and matches end. A match still running after {@code MAX_MATCH_SECONDS} of
+ * simulated time is a draw and makes the run fail.
+ * <p>
+ * Usage: {@code HeadlessPong [matches] [seed] [ticksPerSecond]}
+ */
+
+public class HeadlessPong {
+
+	// Simulated time after which a match is abandoned as a draw, matches normally take a minute or two
+	private static final float MAX_MATCH_SECONDS = 3600f;
+
+	// Seconds between the decisions of a player, and how far from the paddle's center it aims as a share of its height
+	private static final float REACTION_SECONDS = 0.1f;
+	private static final float AIM_ERROR = 0.75f;
+
+	public static void main(String[] args) {
+		int matches = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+		long seed = args.length > 1 ? Long.parseLong(args[1]) : 0L;
+		float tickRate = args.length > 2 ? Float.parseFloat(args[2]) : 120f;
+
+		float dt = 1f / tickRate;
+		int winsP1 = 0;
+		int winsP2 = 0;
+		int draws = 0;
+		long totalTicks = 0;
+
+		long start = System.nanoTime();
+
+		for (int i = 0; i < matches; i++) {
+			Random random = new Random(seed + i);
+			PongSimulation sim = new PongSimulation(1280f, 720f, random);
+			sim.restart();
+
+			long ticks = playMatch(sim, dt, random);
+			totalTicks += ticks;
+
+			if (sim.pointsP1() == PongSimulation.WIN_POINTS) {
+				winsP1++;
+			} else if (sim.pointsP2() == PongSimulation.WIN_POINTS) {
+				winsP2++;
+			} else {
+				draws++;
+			}
+		}
+
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		System.out.printf("%d matches, player 1: %d wins, player 2: %d wins, %d draws%n", matches, winsP1, winsP2, draws);
+		System.out.printf("%d ticks in %.3f s (%.0f ticks/s, %.1f simulated hours)%n",
+			totalTicks, seconds, totalTicks / seconds, totalTicks * dt / 3600.0);
+
+		// A draw means a rally never ended, the ticks/s of such a run don't measure matches being played
+		if (draws > 0) {
+			System.err.printf("%d matches hit the limit of %.0f simulated seconds%n", draws, MAX_MATCH_SECONDS);
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Step a match until either player has won or the match is abandoned.
+	 *
+	 * @param random The source of the players' aim, seed it for reproducible matches.
+	 * @return The amount of ticks the match took.
+	 */
+
+	static long playMatch(PongSimulation sim, float dt, Random random) {
+		int reactionTicks = Math.max(1, Math.round(REACTION_SECONDS / dt));
+		long maxTicks = (long) (MAX_MATCH_SECONDS / dt);
+
+		Player player1 = new Player(sim.paddle1, true, reactionTicks, random);
+		Player player2 = new Player(sim.paddle2, false, reactionTicks, random);
+		long ticks = 0;
+
+		while (sim.state() != PongSimulation.GAMESTATE.PLAYER_WIN && ticks < maxTicks) {
+			sim.setPaddle1Input(player1.input(sim.ball));
+			sim.setPaddle2Input(player2.input(sim.ball));
+			sim.serve();
+
+			sim.step(dt);
+			ticks++;
+		}
+		return ticks;
+	}
+
+	// A computer player that follows the ball with a delay and aims off center by a random amount for every return
+	private static final class Player {
+
+		private final PongSimulation.Body paddle;
+		private final boolean left;
+		private final int reactionTicks;
+		private final Random random;
+
+		private float aim; // Offset from the paddle's center the ball is met at
+		private boolean approaching = false;
+
+		private int input = 0;
+		private int wait = 0;
+
+		Player(PongSimulation.Body paddle, boolean left, int reactionTicks, Random random) {
+			this.paddle = paddle;
+			this.left = left;
+			this.reactionTicks = reactionTicks;
+			this.random = random;
+		}
+
+		int input(PongSimulation.Body ball) {
+			boolean nowApproaching = left ? ball.x < ball.prevX : ball.x > ball.prevX;
+			if (nowApproaching && !approaching) {
+				aim = (random.nextFloat() * 2f - 1f) * AIM_ERROR * paddle.height;
+			}
+			approaching = nowApproaching;
+
+			// The last decision is held until the player reacts again
+			if (wait > 0) {
+				wait--;
+				return input;
+			}
+			wait = reactionTicks - 1;
+			input = follow(paddle, ball.y + ball.height / 2f + aim);
+			return input;
+		}
+
+		// Moves the paddle towards a target, holding still when it is within the middle half of the paddle
+		private static int follow(PongSimulation.Body paddle, float target) {
+			float paddleCenter = paddle.y + paddle.height / 2f;
+
+			if (target < paddleCenter - paddle.height / 4f) {
+				return -1;
+			} else if (target > paddleCenter + paddle.height / 4f) {
+				return 1;
+			}
+			return 0;
+		}
+	}
+}
@@ -0,0 +1,239 @@
+package com.zerologic.pong;
+
+import com.zerologic.pong.PongSimulation.GAMESTATE;
+import com.zerologic.pong.engine.Camera;
+import com.zerologic.pong.engine.GLState;
+import com.zerologic.pong.engine.TextureAtlas;
+import com.zerologic.pong.engine.components.GameObject;
+import com.zerologic.pong.engine.components.Renderer;
+import com.zerologic.pong.engine.components.gui.debug.MetricsOverlay;
+import com.zerologic.pong.engine.components.gui.input.Button;
+import com.zerologic.pong.engine.components.gui.uitext.NumericText;
+import com.zerologic.pong.engine.components.gui.uitext.UIText;
+
+import static org.lwjgl.opengl.GL33.*;
+
+/**
+ * The {@code PongScene} class holds everything drawn for a {@code PongSimulation}: the menu, the paddles and ball,
+ * the scores and the pause and win screens. It issues GL calls but never touches the window, {@code Game} owns
+ * the window and its input and renders the scene once per frame, so a frame can also be rendered without one.
+ */
+
+public class PongScene {
+
+	/**
+	 * Sizes of every text in the scene, the metrics overlay included, so they can be rasterized ahead of time.
+	 */
+
+	public static final float[] FONT_SIZES = { 20f, 30f, 51f, 70f, 90f, 100f };
+
+	private final PongSimulation sim;
+
+	private float width;
+
+	// Menu objects
+	private final GameObject logo;
+	private final Button playBtn;
+	private final Button quitBtn;
+	private final Button resetBtn;
+
+	// Game objects
+	private final GameObject paddle1;
+	private final GameObject paddle2;
+	private final GameObject ball;
+
+	// Text objects
+	private final NumericText text_pts_p1;
+	private final NumericText text_pts_p2;
+	private final UIText pauseText;
+	private final UIText ownership;
+	private final UIText p1WonText;
+	private final UIText p2WonText;
+
+	// Debug
+	private final MetricsOverlay metricsOverlay;
+
+	/**
+	 * @param sim    The simulation to draw.
+	 * @param atlas  The atlas holding the menu textures.
+	 * @param width  The width of the window.
+	 * @param height The height of the window.
+	 * @param quit   Run when the quit button is clicked.
+	 */
+
+	public PongScene(PongSimulation sim, TextureAtlas atlas, float width, float height, Runnable quit) {
+		this.sim = sim;
+
+		// GameObjects for the menu
+		logo = new GameObject(258.0f, 116.0f, atlas.region("menu/logo.png"));
+
+		playBtn = new Button("Play", 51f);
+		playBtn.setColor(1f, 1f, 1f, 1f);
+		playBtn.setHoverColor(1f, 0f, 0f, 1f);
+		playBtn.onMouseUp(() -> sim.setState(GAMESTATE.ACTIVE));
+		playBtn.setClickColor(0f, 0f, 1f, 1f);
+
+		quitBtn = new Button("Quit", 51f);
+		quitBtn.setColor(1f, 1f, 1f, 1f);
+		quitBtn.onMouseUp(quit);
+		quitBtn.setHoverColor(1f, 0f, 0f, 1f);
+		quitBtn.setClickColor(0f, 0f, 1f, 1f);
+
+		resetBtn = new Button("Restart", 51f);
+		resetBtn.setColor(1f, 1f, 1f, 1f);
+		resetBtn.setHoverColor(1f, 0f, 0f, 1f);
+		resetBtn.setClickColor(0f, 0f, 1f, 1f);
+		resetBtn.onMouseUp(sim::restart);
+
+		pauseText = new UIText("Game Paused", 70f);
+		pauseText.setColor(1f, 1f, 1f, 1f);
+
+		ownership = new UIText("ZeroLogic Games", 30f);
+		ownership.setColor(1f, 1f, 1f, 1f);
+
+		// GameObjects for actual game, positioned from the simulation every frame. Their texture is drawn scaled
+		// down, it's loaded with the mip chain the build stored in the .ptex
+		paddle1 = new GameObject(sim.paddle1.width, sim.paddle1.height, "textures/def.ptex", true, GL_RGB);
+		paddle2 = new GameObject(sim.paddle2.width, sim.paddle2.height, "textures/def.ptex", true, GL_RGB);
+		ball = new GameObject(sim.ball.width, sim.ball.height, "textures/def.ptex", true, GL_RGB);
+
+		text_pts_p1 = new NumericText(2, 90f);
+		text_pts_p1.setValue(sim.pointsP1());
+		text_pts_p1.setColor(1f, 1f, 1f, 1f);
+
+		text_pts_p2 = new NumericText(2, 90f);
+		text_pts_p2.setValue(sim.pointsP2());
+		text_pts_p2.setColor(1f, 1f, 1f, 1f);
+
+		// Both results are laid out once, the win screen only picks one
+		p1WonText = new UIText("Player 1 wins!", 100f);
+		p1WonText.setColor(1f, 1f, 1f, 1f);
+
+		p2WonText = new UIText("Player 2 wins!", 100f);
+		p2WonText.setColor(1f, 1f, 1f, 1f);
+
+		metricsOverlay = new MetricsOverlay(5f, 100f);
+
+		resize(width, height);
+	}
+
+	/**
+	 * Lay the scene out for a window size, the simulation is resized by its owner.
+	 */
+
+	public void resize(float width, float height) {
+		this.width = width;
+
+		// Menu
+		logo.setPos(width / 2 - logo.width() / 2, 100);
+
+		playBtn.setPos(width / 2f - playBtn.width() / 2f, height / 2f - playBtn.height() / 2f);
+		quitBtn.setPos(width / 2f - quitBtn.width() / 2f, playBtn.y() + playBtn.height() + 20f);
+		resetBtn.setPos(width / 2f - resetBtn.width() / 2f, quitBtn.y() - resetBtn.height() - 20f);
+
+		ownership.setPos(5, height - ownership.height());
+		pauseText.setPos(width / 2 - pauseText.width() / 2, (height / 2) - 100f - pauseText.height() / 2);
+
+		// Game
+		alignScoreP2();
+
+		p1WonText.setPos(width/2f - p1WonText.width()/2f, height/2f - p1WonText.height()/2f - 100);
+		p2WonText.setPos(width/2f - p2WonText.width()/2f, height/2f - p2WonText.height()/2f - 100);
+	}
+
+	/**
+	 * Draw one frame of the current game state, everything queued is drawn before this returns.
+	 *
+	 * @param alpha How far the frame is between the last two simulation ticks, from 0 to 1.
+	 */
+
+	public void render(float alpha) {
+		glClear(GL_COLOR_BUFFER_BIT);
+		Camera.update();
+
+		switch (sim.state()) {
+			case MENU -> drawMenu();
+			case ACTIVE -> drawGame(alpha);
+			case PAUSED -> drawPause();
+			case PLAYER_WIN -> drawWin();
+		}
+		metricsOverlay.draw();
+
+		Renderer.flush();
+		GLState.endFrame();
+	}
+
+	public MetricsOverlay metricsOverlay() {
+		return metricsOverlay;
+	}
+
+	void drawMenu() {
+		Renderer.draw(logo);
+		Renderer.draw(playBtn);
+		Renderer.draw(quitBtn);
+		Renderer.draw(ownership);
+	}
+
+	void drawGame(float alpha) {
+		// Interpolate between the last two simulation ticks
+		paddle1.setPos(sim.paddle1.lerpX(alpha), sim.paddle1.lerpY(alpha));
+		paddle2.setPos(sim.paddle2.lerpX(alpha), sim.paddle2.lerpY(alpha));
+		ball.setPos(sim.ball.lerpX(alpha), sim.ball.lerpY(alpha));
+
+		Renderer.draw(paddle1);
+		Renderer.draw(paddle2);
+		Renderer.draw(ball);
+
+		Renderer.draw(text_pts_p1);
+		Renderer.draw(text_pts_p2);
+
+		text_pts_p1.setValue(sim.pointsP1()); // Only uploads the digits that changed
+		text_pts_p2.setValue(sim.pointsP2());
+		alignScoreP2();
+	}
+
+	// The score of player 2 grows to the left, its width changes with the amount of digits
+	private void alignScoreP2() {
+		text_pts_p2.setPos(width - text_pts_p2.width(), 0);
+	}
+
+	void drawPause() {
+		Renderer.draw(pauseText);
+		Renderer.draw(quitBtn);
+	}
+
+	void drawWin() {
+		if (sim.pointsP1() == PongSimulation.WIN_POINTS) {
+			Renderer.draw(p1WonText);
+		} else if (sim.pointsP2() == PongSimulation.WIN_POINTS) {
+			Renderer.draw(p2WonText);
+		}
+
+		Renderer.draw(resetBtn);
+		Renderer.draw(quitBtn);
+	}
+
+	/**
+	 * Give the vertex arrays, buffers and textures of the scene back before {@code GLResources} deletes them.
+	 */
+
+	public void destroy() {
+		logo.destroy();
+		paddle1.destroy();
+		paddle2.destroy();
+		ball.destroy();
+
+		playBtn.destroy();
+		quitBtn.destroy();
+		resetBtn.destroy();
+
+		text_pts_p1.destroy();
+		text_pts_p2.destroy();
+		pauseText.destroy();
+		ownership.destroy();
+		p1WonText.destroy();
+		p2WonText.destroy();
+
+		metricsOverlay.destroy();
+	}
+}
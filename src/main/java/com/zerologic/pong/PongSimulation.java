@@ -0,0 +1,347 @@
+package com.zerologic.pong;
+
+import com.zerologic.pong.engine.Collision;
+
+import java.util.Random;
+
+/**
+ * The {@code PongSimulation} class holds the complete gameplay state of a match (paddles, ball, scores and
+ * game state) and advances it in fixed steps. It has no dependency on GLFW or OpenGL, so it can be stepped
+ * without a window, e.g. to simulate matches headlessly, while {@code Game} only renders it and feeds it input.
+ */
+
+public class PongSimulation {
+
+	public enum GAMESTATE {
+		MENU,
+		ACTIVE,
+		PAUSED,
+		PLAYER_WIN
+	}
+
+	/**
+	 * An axis aligned box that also remembers where it was at the start of the current step,
+	 * so that renderers can interpolate between steps.
+	 */
+
+	public static class Body {
+		public float x, y;
+		public float prevX, prevY;
+		public final float width, height;
+
+		public Body(float width, float height) {
+			this.width = width;
+			this.height = height;
+		}
+
+		/**
+		 * Places the body without interpolating from its previous position.
+		 */
+
+		public void setPos(float x, float y) {
+			this.x = x;
+			this.y = y;
+			this.prevX = x;
+			this.prevY = y;
+		}
+
+		public float lerpX(float alpha) {
+			return prevX + (x - prevX) * alpha;
+		}
+
+		public float lerpY(float alpha) {
+			return prevY + (y - prevY) * alpha;
+		}
+
+		void storePrevPos() {
+			prevX = x;
+			prevY = y;
+		}
+	}
+
+	public static final int WIN_POINTS = 5;
+
+	// Base values at the reference resolution of 1280x720, scaled in resize()
+	private static final float REF_WIDTH = 1280f;
+	private static final float REF_HEIGHT = 720f;
+
+	public final Body paddle1 = new Body(25.0f, 200.0f);
+	public final Body paddle2 = new Body(25.0f, 200.0f);
+	public final Body ball = new Body(20.0f, 20.0f);
+
+	// Boxes above and below the field that the ball bounces off, wide enough to cover it until a point is scored
+	private Body topWall;
+	private Body bottomWall;
+
+	private float width;
+	private float height;
+
+	// Game attributes
+	private float paddle1Speed = 1000f;
+	private float paddle2Speed = 1000f;
+
+	private int ballDirection = -1;
+	private int dirToServe = 1;
+
+	private float ballSpeed = 500.0f;
+	private float ballIncSpeed = 50.0f;
+	private float ballAngle = 45.0f;
+	private float ballVelY = (float)Math.cos(ballAngle) * 500f; // Vertical speed, taken from the angle on every return
+
+	private final int maxRandomAngle = 45;
+
+	// Bounces handled within one step, the rest of the step is dropped after that
+	private static final int MAX_BALL_HITS = 4;
+	private final Collision.Hit hit = new Collision.Hit();
+	private final Collision.Hit firstHit = new Collision.Hit();
+
+	private float origBallSpeed = ballSpeed; // Purpose is to reset the speed to the same if someone loses a point.
+
+	// Player points
+	private int pts_p1 = 0;
+	private int pts_p2 = 0;
+
+	// Paddle input for the next steps, -1 moves up, 1 moves down and 0 holds still
+	private int paddle1Input = 0;
+	private int paddle2Input = 0;
+
+	private GAMESTATE state = GAMESTATE.MENU;
+
+	private final Random random;
+
+	public PongSimulation(float width, float height) {
+		this(width, height, new Random());
+	}
+
+	/**
+	 * @param width  The width of the playing field.
+	 * @param height The height of the playing field.
+	 * @param random The source of the random bounce angles, seed it for reproducible matches.
+	 */
+
+	public PongSimulation(float width, float height, Random random) {
+		this.random = random;
+		resize(width, height);
+	}
+
+	/**
+	 * Resize the playing field, this re-centers all bodies and scales the speeds to the new size.
+	 */
+
+	public void resize(float width, float height) {
+		this.width = width;
+		this.height = height;
+
+		paddle1.setPos(50.0f, height / 2f - paddle1.height / 2f);
+		paddle2.setPos(width - paddle2.width - 50.0f, height / 2f - paddle2.height / 2f);
+		ball.setPos(width / 2f - ball.width / 2f, height / 2f - ball.height / 2f);
+
+		topWall = new Body(width * 3f, height);
+		topWall.setPos(-width, -height);
+		bottomWall = new Body(width * 3f, height);
+		bottomWall.setPos(-width, height);
+
+		// Scaling paddle and ball speeds
+		paddle1Speed = 1000 * (height / REF_HEIGHT);
+		paddle2Speed = paddle1Speed;
+
+		ballSpeed = 500 * (width / REF_WIDTH);
+		origBallSpeed = 500 * (width / REF_WIDTH);
+		ballIncSpeed = 50 * (width / REF_WIDTH);
+	}
+
+	/**
+	 * Advance the simulation by one step.
+	 *
+	 * @param dt The length of the step in seconds.
+	 */
+
+	public void step(float dt) {
+		paddle1.storePrevPos();
+		paddle2.storePrevPos();
+		ball.storePrevPos();
+
+		// Check for win condition before anything moves to avoid weird effects
+		if (pts_p1 == WIN_POINTS || pts_p2 == WIN_POINTS) {
+			state = GAMESTATE.PLAYER_WIN;
+		}
+
+		movePaddle(paddle1, paddle1Input, paddle1Speed * dt);
+		movePaddle(paddle2, paddle2Input, paddle2Speed * dt);
+
+		if (state == GAMESTATE.ACTIVE) {
+			updateBall(dt);
+		}
+	}
+
+	private void movePaddle(Body paddle, int input, float distance) {
+		if (input < 0) {
+			if (paddle.y > 0) {
+				paddle.y -= distance;
+			} else if (paddle.y < 0) {
+				paddle.setPos(paddle.x, 0f);
+			}
+		}
+
+		if (input > 0) {
+			if (paddle.y < height - paddle.height) {
+				paddle.y += distance;
+			} else if (paddle.y > height - paddle.height) {
+				paddle.setPos(paddle.x, height - paddle.height);
+			}
+		}
+	}
+
+	private void updateBall(float dt) {
+		float remaining = 1f; // Fraction of the step the ball still has to move
+		int stalled = 0; // Vertical bounces in a row that didn't move the ball
+
+		// The ball is swept against both paddles and the walls and stops at whatever it moves into first, then it
+		// bounces off the side it touched and moves the rest of the step in the new direction. A fast ball or a
+		// long step can't skip through a paddle or a wall this way, and a bounce near a corner is followed by the
+		// sweep along the path the ball actually takes.
+		for (int i = 0; i < MAX_BALL_HITS && remaining > 0f && ballDirection != -1; i++) {
+			float dx = (ballDirection == 0 ? -ballSpeed : ballSpeed) * dt * remaining;
+
+			// Wedged between a paddle and a wall the ball would bounce between them on the spot, it slides out instead
+			float dy = stalled >= 2 ? 0f : ballVelY * dt * remaining;
+
+			Body target = sweepBall(paddle1, dx, dy, null);
+			target = sweepBall(paddle2, dx, dy, target);
+			target = sweepBall(topWall, dx, dy, target);
+			target = sweepBall(bottomWall, dx, dy, target);
+
+			if (target == null) {
+				ball.x += dx;
+				ball.y += dy;
+				break;
+			}
+
+			ball.x += dx * firstHit.time;
+			ball.y += dy * firstHit.time;
+			bounce(target);
+
+			stalled = firstHit.normalY != 0f && firstHit.time == 0f ? stalled + 1 : 0;
+			remaining *= 1f - firstHit.time;
+		}
+
+		// Point score condition
+		// Player one wins point
+		if (ball.x > width + 100) {
+			ballDirection = -1;
+			ballSpeed = origBallSpeed;
+			dirToServe = 1;
+			pts_p1 += 1;
+			ball.setPos(width / 2 - ball.width / 2, height / 2 - ball.height / 2);
+		}
+
+		// Player two wins point
+		if (ball.x < -100) {
+			ballDirection = -1;
+			ballSpeed = origBallSpeed;
+			dirToServe = 0;
+			pts_p2 += 1;
+			ball.setPos(width / 2 - ball.width / 2, height / 2 - ball.height / 2);
+		}
+	}
+
+	// Keeps the earliest hit of the ball moving into a body in firstHit, touching a body it moves away from doesn't count
+	private Body sweepBall(Body body, float dx, float dy, Body first) {
+		if (!Collision.sweep(ball.x, ball.y, ball.width, ball.height, dx, dy, body.x, body.y, body.width, body.height, hit)
+				|| hit.normalX * dx + hit.normalY * dy >= 0f || (first != null && hit.time >= firstHit.time)) {
+			return first;
+		}
+
+		firstHit.time = hit.time;
+		firstHit.normalX = hit.normalX;
+		firstHit.normalY = hit.normalY;
+		return body;
+	}
+
+	// The face of a paddle returns the ball faster and at a new angle, the top and bottom of a paddle and the walls
+	// only reflect its vertical motion. The ball is placed against the side it hit, in case the step started inside.
+	private void bounce(Body target) {
+		if (firstHit.normalY != 0f) {
+			ballVelY = Math.abs(ballVelY) * firstHit.normalY;
+			ball.y = firstHit.normalY < 0f ? target.y - ball.height : target.y + target.height;
+			return;
+		}
+
+		ballAngle += random.nextInt(maxRandomAngle);
+		ballVelY = (float)Math.cos(ballAngle) * 500f;
+		ballSpeed += ballIncSpeed;
+
+		if (firstHit.normalX > 0f) {
+			ballDirection = 1;
+			ball.x = target.x + target.width;
+		} else {
+			ballDirection = 0;
+			ball.x = target.x - ball.width;
+		}
+	}
+
+	/**
+	 * Serve the ball towards the player that lost the last point, only has an effect while the game is
+	 * active and the ball is waiting to be served.
+	 */
+
+	public void serve() {
+		if (state == GAMESTATE.ACTIVE && ballDirection == -1) {
+			ballDirection = dirToServe;
+		}
+	}
+
+	/**
+	 * Reset the scores and start a new match.
+	 */
+
+	public void restart() {
+		pts_p1 = 0;
+		pts_p2 = 0;
+		state = GAMESTATE.ACTIVE;
+	}
+
+	/**
+	 * @param input -1 to move up, 1 to move down, 0 to hold still.
+	 */
+
+	public void setPaddle1Input(int input) {
+		paddle1Input = input;
+	}
+
+	/**
+	 * @param input -1 to move up, 1 to move down, 0 to hold still.
+	 */
+
+	public void setPaddle2Input(int input) {
+		paddle2Input = input;
+	}
+
+	public GAMESTATE state() {
+		return state;
+	}
+
+	public void setState(GAMESTATE state) {
+		this.state = state;
+	}
+
+	public boolean isServing() {
+		return ballDirection == -1;
+	}
+
+	public int pointsP1() {
+		return pts_p1;
+	}
+
+	public int pointsP2() {
+		return pts_p2;
+	}
+
+	public float width() {
+		return width;
+	}
+
+	public float height() {
+		return height;
+	}
+}
@@ -0,0 +1,170 @@
+package com.zerologic.pong.engine;
+
+import org.lwjgl.BufferUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * The {@code AssetArchive} class reads the packed asset archive that {@code AssetArchiveBuilder} produces from
+ * {@code src/main/resources} at build time. The archive is mapped once and every asset is served by its logical
+ * name, its path relative to the resources directory, e.g. {@code "shaders/vertex.glsl"}.
+ * <p>
+ * Layout, big endian:
+ * <pre>
+ * header  int magic ("PPAK"), int version, int entry count
+ * index   per entry: short name length, UTF-8 name, long offset, int stored size, int size, byte compression
+ * blobs   the data of every entry at its offset, stored as is or deflated
+ * </pre>
+ */
+
+public class AssetArchive {
+
+	public static final int MAGIC = 0x5050414B; // "PPAK"
+	public static final int VERSION = 1;
+
+	public static final byte STORED = 0;
+	public static final byte DEFLATED = 1;
+
+	private static final class Entry {
+		final long offset;
+		final int storedSize;
+		final int size;
+		final byte compression;
+
+		Entry(long offset, int storedSize, int size, byte compression) {
+			this.offset = offset;
+			this.storedSize = storedSize;
+			this.size = size;
+			this.compression = compression;
+		}
+	}
+
+	private final ByteBuffer data;
+	private final Map<String, Entry> entries;
+
+	private AssetArchive(ByteBuffer data, Map<String, Entry> entries) {
+		this.data = data;
+		this.entries = entries;
+	}
+
+	/**
+	 * Map an archive file and read its index.
+	 */
+
+	public static AssetArchive open(String filepath) throws IOException {
+		return read(ResourceReader.map(filepath));
+	}
+
+	/**
+	 * Read the index of an archive that is already in memory, e.g. one that was read from a jar.
+	 */
+
+	public static AssetArchive read(ByteBuffer buffer) throws IOException {
+		ByteBuffer data = buffer.slice().order(ByteOrder.BIG_ENDIAN); // Direct buffers from BufferUtils are native order
+
+		if (data.remaining() < 12 || data.getInt(0) != MAGIC) {
+			throw new IOException("Not an asset archive");
+		}
+
+		if (data.getInt(4) != VERSION) {
+			throw new IOException("Unsupported asset archive version " + data.getInt(4));
+		}
+
+		int count = data.getInt(8);
+		Map<String, Entry> entries = new HashMap<>(count * 2);
+
+		ByteBuffer index = data.duplicate();
+		index.position(12);
+
+		for (int i = 0; i < count; i++) {
+			byte[] name = new byte[index.getShort() & 0xFFFF];
+			index.get(name);
+
+			long offset = index.getLong();
+			int storedSize = index.getInt();
+			int size = index.getInt();
+			byte compression = index.get();
+
+			if (offset + storedSize > data.limit()) {
+				throw new IOException("Asset archive is truncated");
+			}
+			entries.put(new String(name, StandardCharsets.UTF_8), new Entry(offset, storedSize, size, compression));
+		}
+
+		return new AssetArchive(data, entries);
+	}
+
+	public boolean contains(String name) {
+		return entries.containsKey(name);
+	}
+
+	/**
+	 * Get the data of an asset. Stored assets are a view into the mapped archive, deflated ones are
+	 * inflated into a new direct buffer. Safe to call from several threads.
+	 *
+	 * @param name The logical name of the asset.
+	 * @return The data, or null if the archive doesn't contain the asset.
+	 */
+
+	public ByteBuffer get(String name) throws IOException {
+		Entry entry = entries.get(name);
+
+		if (entry == null) {
+			return null;
+		}
+
+		ByteBuffer stored = data.slice((int) entry.offset, entry.storedSize);
+
+		if (entry.compression == STORED) {
+			return stored;
+		}
+
+		ByteBuffer inflated = BufferUtils.createByteBuffer(entry.size);
+		Inflater inflater = new Inflater();
+
+		try {
+			inflater.setInput(stored);
+			while (inflated.hasRemaining() && !inflater.finished()) {
+				if (inflater.inflate(inflated) == 0 && inflater.needsInput()) {
+					break;
+				}
+			}
+		} catch (DataFormatException e) {
+			throw new IOException("Corrupt asset " + name, e);
+		} finally {
+			inflater.end();
+		}
+
+		if (inflated.hasRemaining()) {
+			throw new IOException("Corrupt asset " + name);
+		}
+		return inflated.flip();
+	}
+
+	/**
+	 * @return The names of every asset below the directory, e.g. {@code "textures/"}, in sorted order.
+	 */
+
+	public List<String> list(String directory) {
+		List<String> names = new ArrayList<>();
+
+		for (String name : entries.keySet()) {
+			if (name.startsWith(directory)) {
+				names.add(name);
+			}
+		}
+
+		Collections.sort(names);
+		return names;
+	}
+
+	public int size() {
+		return entries.size();
+	}
+}
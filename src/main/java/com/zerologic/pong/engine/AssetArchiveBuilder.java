@@ -0,0 +1,141 @@
+package com.zerologic.pong.engine;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+
+/**
+ * Packs resources directories into an {@code AssetArchive}, run by the build in the {@code process-classes} phase.
+ * Assets are deflated when that makes them noticeably smaller, already compressed formats like PNG are stored as is.
+ * Every directory is packed under the same names, so assets generated by the build, e.g. {@code .ptex} textures,
+ * sit next to the ones they were made from.
+ * <p>
+ * Usage: {@code AssetArchiveBuilder <resources directory>... <archive file>}
+ */
+
+public class AssetArchiveBuilder {
+
+	// Source files of assets that the game never loads
+	private static final String[] EXCLUDED_EXTENSIONS = { ".psd" };
+
+	// Deflated data is only kept if it is at most this fraction of the original size
+	private static final float MIN_COMPRESSION = 0.9f;
+
+	private static final class Blob {
+		final String name;
+		final byte[] stored;
+		final int size;
+		final byte compression;
+
+		Blob(String name, byte[] stored, int size, byte compression) {
+			this.name = name;
+			this.stored = stored;
+			this.size = size;
+			this.compression = compression;
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("Usage: AssetArchiveBuilder <resources directory>... <archive file>");
+			System.exit(1);
+		}
+
+		Path target = Path.of(args[args.length - 1]);
+
+		List<Blob> blobs = new ArrayList<>();
+		for (int i = 0; i < args.length - 1; i++) {
+			Path source = Path.of(args[i]);
+
+			try (Stream<Path> files = Files.walk(source)) {
+				for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile).sorted()::iterator) {
+					String name = source.relativize(file).toString().replace('\\', '/');
+
+					if (!isExcluded(name)) {
+						blobs.add(pack(name, Files.readAllBytes(file)));
+					}
+				}
+			}
+		}
+
+		Files.createDirectories(target.toAbsolutePath().getParent());
+		try (OutputStream out = Files.newOutputStream(target)) {
+			write(blobs, out);
+		}
+
+		System.out.println("Packed " + blobs.size() + " assets into " + target);
+	}
+
+	private static Blob pack(String name, byte[] data) {
+		Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+		ByteArrayOutputStream deflated = new ByteArrayOutputStream(data.length);
+		byte[] chunk = new byte[8192];
+
+		try {
+			deflater.setInput(data);
+			deflater.finish();
+
+			while (!deflater.finished()) {
+				deflated.write(chunk, 0, deflater.deflate(chunk));
+			}
+		} finally {
+			deflater.end();
+		}
+
+		if (deflated.size() <= data.length * MIN_COMPRESSION) {
+			return new Blob(name, deflated.toByteArray(), data.length, AssetArchive.DEFLATED);
+		}
+		return new Blob(name, data, data.length, AssetArchive.STORED);
+	}
+
+	private static void write(List<Blob> blobs, OutputStream stream) throws IOException {
+		DataOutputStream out = new DataOutputStream(stream);
+
+		// The blobs start right after the index, so the index size has to be known first
+		long offset = 12;
+		for (Blob blob : blobs) {
+			offset += 2 + blob.name.getBytes(StandardCharsets.UTF_8).length + 8 + 4 + 4 + 1;
+		}
+
+		out.writeInt(AssetArchive.MAGIC);
+		out.writeInt(AssetArchive.VERSION);
+		out.writeInt(blobs.size());
+
+		for (Blob blob : blobs) {
+			byte[] name = blob.name.getBytes(StandardCharsets.UTF_8);
+
+			out.writeShort(name.length);
+			out.write(name);
+			out.writeLong(offset);
+			out.writeInt(blob.stored.length);
+			out.writeInt(blob.size);
+			out.writeByte(blob.compression);
+
+			offset += blob.stored.length;
+		}
+
+		for (Blob blob : blobs) {
+			out.write(blob.stored);
+		}
+		out.flush();
+	}
+
+	private static boolean isExcluded(String name) {
+		String lower = name.toLowerCase(Locale.ROOT);
+		for (String extension : EXCLUDED_EXTENSIONS) {
+			if (lower.endsWith(extension)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
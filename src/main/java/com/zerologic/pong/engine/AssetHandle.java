@@ -0,0 +1,71 @@
+package com.zerologic.pong.engine;
+
+/**
+ * The {@code AssetHandle} class is the result of an asset requested from the {@code AssetLoader}. It can be
+ * polled every frame, the asset becomes available once it was decoded on a worker and uploaded on the GL thread.
+ *
+ * @param <T> The type of the loaded asset.
+ */
+
+public final class AssetHandle<T> {
+
+	private final String name;
+
+	private volatile boolean done = false;
+	private volatile T value;
+	private volatile Throwable error;
+
+	AssetHandle(String name) {
+		this.name = name;
+	}
+
+	void complete(T value) {
+		this.value = value;
+		this.done = true;
+	}
+
+	void fail(Throwable error) {
+		this.error = error;
+		this.done = true;
+	}
+
+	/**
+	 * @return Whether loading finished, either successfully or with an error.
+	 */
+
+	public boolean isDone() {
+		return done;
+	}
+
+	public boolean failed() {
+		return done && error != null;
+	}
+
+	/**
+	 * @return The loaded asset.
+	 * @throws IllegalStateException If the asset isn't loaded yet or failed to load.
+	 */
+
+	public T get() {
+		if (!done) {
+			throw new IllegalStateException(name + " is not loaded yet");
+		}
+
+		if (error != null) {
+			throw new IllegalStateException("Unable to load " + name, error);
+		}
+		return value;
+	}
+
+	/**
+	 * @return The reason loading failed, or null.
+	 */
+
+	public Throwable error() {
+		return error;
+	}
+
+	public String name() {
+		return name;
+	}
+}
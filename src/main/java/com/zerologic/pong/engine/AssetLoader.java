@@ -0,0 +1,203 @@
+package com.zerologic.pong.engine;
+
+import org.lwjgl.BufferUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.stb.STBImage.*;
+
+/**
+ * The {@code AssetLoader} class loads assets in two stages. Everything that doesn't need the GL context,
+ * reading files, decoding images, rasterizing glyphs, runs on a pool of worker threads. The results are queued
+ * and handed to the GL thread in {@link #update(long)}, which only does a bounded amount of upload work per
+ * call so it can be pumped every frame without stalling it.
+ * <p>
+ * Images are never decoded with {@code stbi_set_flip_vertically_on_load}, which is global state in stb_image,
+ * they are flipped after decoding instead so a decode on the GL thread can't flip the ones on the workers.
+ */
+
+public class AssetLoader {
+
+	private final ExecutorService workers;
+
+	// Finished CPU work waiting for the GL thread
+	private final LinkedBlockingQueue<Runnable> uploads = new LinkedBlockingQueue<>();
+	private final AtomicInteger pending = new AtomicInteger();
+
+	/**
+	 * @param threads The amount of worker threads.
+	 */
+
+	public AssetLoader(int threads) {
+		AtomicInteger count = new AtomicInteger();
+
+		workers = Executors.newFixedThreadPool(threads, task -> {
+			Thread thread = new Thread(task, "asset-loader-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Load an asset in two stages.
+	 *
+	 * @param name   The name of the asset, used in error messages.
+	 * @param decode The CPU work, run on a worker thread.
+	 * @param upload Turns the result of {@code decode} into the asset, run on the GL thread.
+	 * @return The handle the asset can be polled with.
+	 */
+
+	public <P, T> AssetHandle<T> load(String name, Callable<P> decode, Function<P, T> upload) {
+		AssetHandle<T> handle = new AssetHandle<>(name);
+		pending.incrementAndGet();
+
+		workers.execute(() -> {
+			try {
+				P decoded = decode.call();
+
+				uploads.add(() -> {
+					try {
+						handle.complete(upload.apply(decoded));
+					} catch (Throwable e) {
+						handle.fail(e);
+					}
+				});
+			} catch (Throwable e) {
+				uploads.add(() -> handle.fail(e));
+			}
+		});
+		return handle;
+	}
+
+	/**
+	 * Decode an image on a worker and upload it as a texture, {@code .ptex} files are uploaded with their stored mip chain.
+	 *
+	 * @param filepath        The file path of the image.
+	 * @param flipImageOnLoad Whether or not to flip the image vertically.
+	 * @param type            The type of color channel the texture will use (RGB or RGBA).
+	 */
+
+	public AssetHandle<Texture> loadTexture(String filepath, boolean flipImageOnLoad, int type) {
+		if (filepath.endsWith(Ptex.EXTENSION)) {
+			return load(filepath, () -> Ptex.load(filepath, flipImageOnLoad), Texture::new); // Nothing to decode, only decompressed if needed
+		}
+
+		int channels = type == GL_RGBA ? 4 : 3;
+
+		return load(filepath, () -> decodeImage(filepath, flipImageOnLoad, channels), image -> {
+			try {
+				return new Texture(image.pixels, image.width, image.height, type);
+			} finally {
+				stbi_image_free(image.pixels);
+			}
+		});
+	}
+
+	/**
+	 * Read the shader sources on a worker and compile and link them on the GL thread.
+	 */
+
+	public AssetHandle<ShaderProgram> loadShader(String vertPath, String fragPath) {
+		return load(vertPath + ", " + fragPath,
+			() -> new String[] { ShaderProgram.readStringFromFile(vertPath), ShaderProgram.readStringFromFile(fragPath) },
+			sources -> ShaderProgram.fromSource(sources[0], sources[1]));
+	}
+
+	/**
+	 * Run queued uploads on the GL thread until the time budget is used up. At least one upload is run
+	 * per call if any is waiting, so loading always makes progress.
+	 *
+	 * @param budgetNanos The time that may be spent uploading.
+	 * @return The amount of uploads that were run.
+	 */
+
+	public int update(long budgetNanos) {
+		long start = System.nanoTime();
+		int count = 0;
+
+		Runnable upload;
+		while ((upload = uploads.poll()) != null) {
+			finish(upload);
+			count++;
+
+			if (System.nanoTime() - start >= budgetNanos) {
+				break;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Block the GL thread until every requested asset has finished loading, running uploads as they come in.
+	 */
+
+	public void finishAll() {
+		try {
+			while (pending.get() > 0) {
+				Runnable upload = uploads.poll(100, TimeUnit.MILLISECONDS);
+
+				if (upload != null) {
+					finish(upload);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * @return The amount of assets that haven't finished loading.
+	 */
+
+	public int pending() {
+		return pending.get();
+	}
+
+	public boolean isIdle() {
+		return pending.get() == 0;
+	}
+
+	public void shutdown() {
+		workers.shutdownNow();
+		uploads.clear();
+	}
+
+	private void finish(Runnable upload) {
+		upload.run();
+		pending.decrementAndGet();
+	}
+
+	// A decoded image, the pixels are owned by stb_image
+	private static final class Image {
+		final ByteBuffer pixels;
+		final int width, height;
+
+		Image(ByteBuffer pixels, int width, int height) {
+			this.pixels = pixels;
+			this.width = width;
+			this.height = height;
+		}
+	}
+
+	private static Image decodeImage(String filepath, boolean flip, int channels) throws IOException {
+		IntBuffer w = BufferUtils.createIntBuffer(1);
+		IntBuffer h = BufferUtils.createIntBuffer(1);
+		IntBuffer comp = BufferUtils.createIntBuffer(1);
+
+		ByteBuffer pixels = stbi_load_from_memory(Resources.read(filepath), w, h, comp, channels);
+		if (pixels == null) {
+			throw new IllegalStateException("Unable to decode " + filepath + ": " + stbi_failure_reason());
+		}
+
+		if (flip) {
+			Texture.flipRows(pixels, w.get(0) * channels, h.get(0));
+		}
+		return new Image(pixels, w.get(0), h.get(0));
+	}
+}
@@ -0,0 +1,31 @@
+package com.zerologic.pong.engine;
+
+/**
+ * A named rectangle on a {@code TextureAtlas} page. The texture coordinates are those of the top left
+ * {@code (u0, v0)} and bottom right {@code (u1, v1)} corners of the image.
+ */
+
+public class AtlasRegion {
+
+	public final String name;
+	public final Texture texture;
+
+	// Position and size on the page in pixels
+	public final int x, y, width, height;
+
+	public final float u0, v0, u1, v1;
+
+	AtlasRegion(String name, Texture texture, int x, int y, int width, int height) {
+		this.name = name;
+		this.texture = texture;
+		this.x = x;
+		this.y = y;
+		this.width = width;
+		this.height = height;
+
+		this.u0 = (float) x / texture.width;
+		this.v0 = (float) y / texture.height;
+		this.u1 = (float) (x + width) / texture.width;
+		this.v1 = (float) (y + height) / texture.height;
+	}
+}
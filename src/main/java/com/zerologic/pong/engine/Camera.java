@@ -0,0 +1,116 @@
+package com.zerologic.pong.engine;
+
+import com.zerologic.pong.Game;
+import org.joml.Matrix4f;
+import org.joml.Matrix4fc;
+import org.lwjgl.BufferUtils;
+
+import java.nio.FloatBuffer;
+
+import static org.lwjgl.opengl.GL33.*;
+
+/**
+ * The {@code Camera} class holds the matrices that are the same for everything drawn in a frame, the projection and
+ * the view transform. They live in one std140 uniform buffer bound to {@link #BINDING}, which every program declaring
+ * the block below reads from:
+ * <pre>
+ * layout (std140) uniform Camera {
+ *     mat4 projection;
+ *     mat4 transform;
+ * };
+ * </pre>
+ * Changing a matrix only marks the buffer dirty, {@link #update()} writes it with a single upload no matter
+ * how many programs use it.
+ */
+
+public class Camera {
+
+	public static final int BINDING = 0;
+	public static final String BLOCK_NAME = "Camera";
+
+	// Two column major mat4, std140 gives them no padding
+	private static final int FLOATS = 2 * 16;
+
+	private static final Matrix4f projection = new Matrix4f();
+	private static final Matrix4f transform = new Matrix4f();
+
+	private static final FloatBuffer staging = BufferUtils.createFloatBuffer(FLOATS);
+
+	private static int UBO;
+	private static boolean dirty = true;
+
+	private Camera() {}
+
+	/**
+	 * Point the camera block of a linked program at the camera buffer, the buffer is created on first use.
+	 * Programs without the block are left alone.
+	 *
+	 * @param program The GL program handle.
+	 */
+
+	public static void attach(int program) {
+		if (UBO == 0) {
+			UBO = GLResources.buffer(Camera.class);
+
+			glBindBuffer(GL_UNIFORM_BUFFER, UBO);
+			glBufferData(GL_UNIFORM_BUFFER, (long) FLOATS * Float.BYTES, GL_DYNAMIC_DRAW);
+			glBindBuffer(GL_UNIFORM_BUFFER, 0);
+
+			glBindBufferBase(GL_UNIFORM_BUFFER, BINDING, UBO);
+			setViewport(Game.getWinWidth(), Game.getWinHeight());
+			update();
+		}
+
+		int block = glGetUniformBlockIndex(program, BLOCK_NAME);
+		if (block != GL_INVALID_INDEX) {
+			glUniformBlockBinding(program, block, BINDING);
+		}
+	}
+
+	/**
+	 * Set up the orthographic projection for a window size, (0, 0) is the top left corner.
+	 */
+
+	public static void setViewport(float width, float height) {
+		projection.setOrtho(0.0f, width, height, 0.0f, -1.0f, 1.0f);
+		dirty = true;
+	}
+
+	public static void setTransform(Matrix4fc t) {
+		transform.set(t);
+		dirty = true;
+	}
+
+	public static void resetTransform() {
+		transform.identity();
+		dirty = true;
+	}
+
+	public static Matrix4fc projection() {
+		return projection;
+	}
+
+	public static Matrix4fc transform() {
+		return transform;
+	}
+
+	/**
+	 * Upload the matrices if they changed since the last update, called once per frame before drawing.
+	 */
+
+	public static void update() {
+		if (!dirty || UBO == 0) {
+			return;
+		}
+
+		projection.get(0, staging);
+		transform.get(16, staging);
+
+		glBindBuffer(GL_UNIFORM_BUFFER, UBO);
+		Metrics.uploaded((long) FLOATS * Float.BYTES);
+		glBufferSubData(GL_UNIFORM_BUFFER, 0, staging);
+		glBindBuffer(GL_UNIFORM_BUFFER, 0);
+
+		dirty = false;
+	}
+}
@@ -0,0 +1,108 @@
+package com.zerologic.pong.engine;
+
+/**
+ * The {@code Collision} class holds continuous collision tests between axis aligned boxes. A moving box is swept
+ * along its displacement for a step instead of being tested where it ends up, so it can't pass through a thin box
+ * no matter how fast it moves or how long the step is.
+ * <p>
+ * A sweep is a ray cast from the moving box's corner against the other box expanded by the moving box's size,
+ * the result is written into a reusable {@link Hit} so testing allocates nothing.
+ */
+
+public class Collision {
+
+	/**
+	 * Where along a sweep the boxes first touched and the side of the static box that was hit.
+	 */
+
+	public static class Hit {
+
+		/** Fraction of the displacement travelled before touching, from 0 to 1. 0 if the boxes already overlapped. */
+		public float time;
+
+		/** Normal of the side that was hit, pointing away from the static box. One of the axes or 0. */
+		public float normalX, normalY;
+
+		void set(float time, float normalX, float normalY) {
+			this.time = time;
+			this.normalX = normalX;
+			this.normalY = normalY;
+		}
+	}
+
+	private Collision() {}
+
+	/**
+	 * @return Whether two boxes overlap, touching edges count as overlapping.
+	 */
+
+	public static boolean overlaps(float ax, float ay, float aw, float ah, float bx, float by, float bw, float bh) {
+		return ax + aw >= bx && ax <= bx + bw && ay + ah >= by && ay <= by + bh;
+	}
+
+	/**
+	 * Sweep box a along a displacement against the static box b. For two moving boxes pass the displacement of a
+	 * relative to b.
+	 *
+	 * @param dx The displacement of a along x over the step.
+	 * @param dy The displacement of a along y over the step.
+	 * @param hit Receives the time of impact and the normal, left as is when nothing is hit.
+	 * @return Whether a touches b anywhere along the displacement. Boxes that only touch at the start and move
+	 *         apart or slide along each other don't count.
+	 */
+
+	public static boolean sweep(float ax, float ay, float aw, float ah, float dx, float dy,
+								float bx, float by, float bw, float bh, Hit hit) {
+		// b grown by a's size, a itself shrinks to its top left corner
+		float minX = bx - aw;
+		float maxX = bx + bw;
+		float minY = by - ah;
+		float maxY = by + bh;
+
+		float enterX, exitX;
+		if (dx == 0f) {
+			if (ax <= minX || ax >= maxX) {
+				return false;
+			}
+			enterX = Float.NEGATIVE_INFINITY;
+			exitX = Float.POSITIVE_INFINITY;
+		} else {
+			float t0 = (minX - ax) / dx;
+			float t1 = (maxX - ax) / dx;
+			enterX = Math.min(t0, t1);
+			exitX = Math.max(t0, t1);
+		}
+
+		float enterY, exitY;
+		if (dy == 0f) {
+			if (ay <= minY || ay >= maxY) {
+				return false;
+			}
+			enterY = Float.NEGATIVE_INFINITY;
+			exitY = Float.POSITIVE_INFINITY;
+		} else {
+			float t0 = (minY - ay) / dy;
+			float t1 = (maxY - ay) / dy;
+			enterY = Math.min(t0, t1);
+			exitY = Math.max(t0, t1);
+		}
+
+		float enter = Math.max(enterX, enterY);
+		float exit = Math.min(exitX, exitY);
+
+		// Missed, touched only after the step or left before it or right at its start
+		if (enter > exit || enter > 1f || exit <= 0f) {
+			return false;
+		}
+
+		// The axis entered last is the side that was hit, a box that doesn't move has no side
+		if (enter == Float.NEGATIVE_INFINITY) {
+			hit.set(0f, 0f, 0f);
+		} else if (enterX >= enterY) {
+			hit.set(Math.max(enter, 0f), dx > 0f ? -1f : 1f, 0f);
+		} else {
+			hit.set(Math.max(enter, 0f), 0f, dy > 0f ? -1f : 1f);
+		}
+		return true;
+	}
+}
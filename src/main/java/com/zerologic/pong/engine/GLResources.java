@@ -0,0 +1,257 @@
+package com.zerologic.pong.engine;
+
+import java.util.*;
+
+import static org.lwjgl.opengl.GL33.*;
+
+/**
+ * The {@code GLResources} class hands out vertex arrays and buffers and takes them back. Every handle is recorded
+ * with the object that owns it, so an owner can release everything it holds in one call when it is destroyed.
+ * Handles shared by every instance of a class are owned by the class itself and live until shutdown.
+ * Released handles are reset and kept in a pool to be handed out again instead of being deleted, and
+ * {@link #destroy()} deletes everything that is left when shutting down.
+ * <p>
+ * It also holds the unit quad every textured rectangle is drawn from, corners (0, 0) to (1, 1) with the
+ * texture coordinates in {@code zw}, the layout {@code vertex.glsl} expects at location 0.
+ */
+
+public class GLResources {
+
+	public static final int UNIT_QUAD_INDEX_COUNT = 6;
+
+	// Vertex attributes reset when a vertex array is recycled
+	private static final int MAX_ATTRIBUTES = 16;
+
+	private static final ArrayDeque<Integer> freeVertexArrays = new ArrayDeque<>();
+	private static final ArrayDeque<Integer> freeBuffers = new ArrayDeque<>();
+
+	// Handle to owner of every handle that is handed out
+	private static final HashMap<Integer, Object> vertexArrayOwners = new HashMap<>();
+	private static final HashMap<Integer, Object> bufferOwners = new HashMap<>();
+
+	private static int unitQuadVAO, unitQuadVBO, unitQuadEBO;
+
+	private GLResources() {}
+
+	/**
+	 * @param owner The object the vertex array belongs to.
+	 * @return A vertex array without any attributes enabled.
+	 */
+
+	public static int vertexArray(Object owner) {
+		Integer handle = freeVertexArrays.poll();
+		int vao = handle != null ? handle : glGenVertexArrays();
+
+		vertexArrayOwners.put(vao, owner);
+		return vao;
+	}
+
+	/**
+	 * @param owner The object the buffer belongs to.
+	 * @return A buffer without any storage.
+	 */
+
+	public static int buffer(Object owner) {
+		Integer handle = freeBuffers.poll();
+		int buffer = handle != null ? handle : glGenBuffers();
+
+		bufferOwners.put(buffer, owner);
+		return buffer;
+	}
+
+	/**
+	 * Give a vertex array back to the pool.
+	 *
+	 * @throws IllegalStateException If the vertex array isn't held by {@code owner}.
+	 */
+
+	public static void releaseVertexArray(Object owner, int vao) {
+		checkOwner(vertexArrayOwners, owner, vao, "Vertex array");
+		vertexArrayOwners.remove(vao);
+
+		// A recycled vertex array must not carry over the attributes of its previous owner
+		GLState.bindVertexArray(vao);
+		for (int i = 0; i < MAX_ATTRIBUTES; i++) {
+			glDisableVertexAttribArray(i);
+			glVertexAttribDivisor(i, 0);
+		}
+		glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, 0);
+		GLState.bindVertexArray(0);
+
+		freeVertexArrays.push(vao);
+	}
+
+	/**
+	 * Give a buffer back to the pool, its storage is freed.
+	 *
+	 * @throws IllegalStateException If the buffer isn't held by {@code owner}.
+	 */
+
+	public static void releaseBuffer(Object owner, int buffer) {
+		checkOwner(bufferOwners, owner, buffer, "Buffer");
+		bufferOwners.remove(buffer);
+
+		glBindBuffer(GL_ARRAY_BUFFER, buffer);
+		glBufferData(GL_ARRAY_BUFFER, 0, GL_STATIC_DRAW);
+		glBindBuffer(GL_ARRAY_BUFFER, 0);
+
+		freeBuffers.push(buffer);
+	}
+
+	/**
+	 * Give back every vertex array and buffer held by {@code owner}.
+	 */
+
+	public static void releaseAll(Object owner) {
+		for (int vao : handlesOf(vertexArrayOwners, owner)) {
+			releaseVertexArray(owner, vao);
+		}
+
+		for (int buffer : handlesOf(bufferOwners, owner)) {
+			releaseBuffer(owner, buffer);
+		}
+	}
+
+	/**
+	 * @return The amount of vertex arrays and buffers that are handed out.
+	 */
+
+	public static int liveCount() {
+		return vertexArrayOwners.size() + bufferOwners.size();
+	}
+
+	/**
+	 * @return The amount of vertex arrays and buffers waiting in the pool.
+	 */
+
+	public static int pooledCount() {
+		return freeVertexArrays.size() + freeBuffers.size();
+	}
+
+	/**
+	 * A vertex array of the unit quad with its element buffer bound, drawn with
+	 * {@code glDrawElements(GL_TRIANGLES, UNIT_QUAD_INDEX_COUNT, GL_UNSIGNED_INT, 0)}.
+	 */
+
+	public static int unitQuad() {
+		createUnitQuad();
+		return unitQuadVAO;
+	}
+
+	/**
+	 * The vertex buffer of the unit quad, for vertex arrays that combine it with attributes of their own.
+	 */
+
+	public static int unitQuadVertices() {
+		createUnitQuad();
+		return unitQuadVBO;
+	}
+
+	/**
+	 * The element buffer of the unit quad.
+	 */
+
+	public static int unitQuadIndices() {
+		createUnitQuad();
+		return unitQuadEBO;
+	}
+
+	/**
+	 * Delete every vertex array and buffer, pooled or not. Handles still held by an object are reported,
+	 * as they should have been released when their owner was destroyed.
+	 */
+
+	public static void destroy() {
+		int leaked = 0;
+		for (Object owner : vertexArrayOwners.values()) {
+			leaked += owner instanceof Class ? 0 : 1;
+		}
+		for (Object owner : bufferOwners.values()) {
+			leaked += owner instanceof Class ? 0 : 1;
+		}
+
+		if (leaked > 0) {
+			System.err.println(leaked + " vertex arrays and buffers were never released");
+		}
+		unitQuadVAO = unitQuadVBO = unitQuadEBO = 0;
+
+		for (int vao : vertexArrayOwners.keySet()) {
+			GLState.forgetVertexArray(vao);
+			glDeleteVertexArrays(vao);
+		}
+
+		for (int buffer : bufferOwners.keySet()) {
+			glDeleteBuffers(buffer);
+		}
+
+		for (int vao : freeVertexArrays) {
+			GLState.forgetVertexArray(vao);
+			glDeleteVertexArrays(vao);
+		}
+
+		for (int buffer : freeBuffers) {
+			glDeleteBuffers(buffer);
+		}
+
+		vertexArrayOwners.clear();
+		bufferOwners.clear();
+		freeVertexArrays.clear();
+		freeBuffers.clear();
+	}
+
+	private static void createUnitQuad() {
+		if (unitQuadVAO != 0) {
+			return;
+		}
+
+		float[] data = {
+			// Vertex positions	   // Tex coords
+			0.0f, 0.0f,   0.0f, 1.0f, // Top left
+			1.0f, 0.0f,   1.0f, 1.0f, // Top right
+			1.0f, 1.0f,   1.0f, 0.0f, // Bottom right
+			0.0f, 1.0f,   0.0f, 0.0f  // Bottom left
+		};
+
+		int[] indices = {
+			0, 1, 3,
+			1, 2, 3
+		};
+
+		unitQuadVAO = vertexArray(GLResources.class);
+		GLState.bindVertexArray(unitQuadVAO);
+
+		unitQuadVBO = buffer(GLResources.class);
+		glBindBuffer(GL_ARRAY_BUFFER, unitQuadVBO);
+		glBufferData(GL_ARRAY_BUFFER, data, GL_STATIC_DRAW);
+
+		unitQuadEBO = buffer(GLResources.class);
+		glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, unitQuadEBO);
+		glBufferData(GL_ELEMENT_ARRAY_BUFFER, indices, GL_STATIC_DRAW);
+
+		glVertexAttribPointer(0, 4, GL_FLOAT, false, 16, 0);
+		glEnableVertexAttribArray(0);
+
+		GLState.bindVertexArray(0);
+		glBindBuffer(GL_ARRAY_BUFFER, 0);
+		glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, 0);
+	}
+
+	private static void checkOwner(Map<Integer, Object> owners, Object owner, int handle, String kind) {
+		Object current = owners.get(handle);
+
+		if (current != owner) {
+			throw new IllegalStateException(kind + " " + handle + " is " + (current == null ? "not handed out" : "held by " + current));
+		}
+	}
+
+	private static List<Integer> handlesOf(Map<Integer, Object> owners, Object owner) {
+		List<Integer> handles = new ArrayList<>();
+
+		for (Map.Entry<Integer, Object> entry : owners.entrySet()) {
+			if (entry.getValue() == owner) {
+				handles.add(entry.getKey());
+			}
+		}
+		return handles;
+	}
+}
@@ -0,0 +1,209 @@
+package com.zerologic.pong.engine;
+
+import java.util.Arrays;
+
+import static org.lwjgl.opengl.GL33.*;
+
+/**
+ * The {@code GLState} class is a cache of the GL state the engine changes while drawing: the program in use, the
+ * bound vertex array, the texture bound to each unit, blending and the line width. Every engine call that changes
+ * one of them goes through here and calls that wouldn't change anything are dropped. The amount of issued and
+ * dropped calls is counted per frame.
+ * <p>
+ * The cache assumes it is the only one changing this state, code that calls GL directly has to {@link #invalidate()}
+ * it afterwards. Must only be used on the GL thread.
+ */
+
+public class GLState {
+
+	private static final int TEXTURE_UNITS = 16;
+
+	private static final int UNKNOWN = -1;
+
+	private static int program = UNKNOWN;
+	private static int vertexArray = UNKNOWN;
+	private static int activeUnit = UNKNOWN;
+	private static final int[] textures = new int[TEXTURE_UNITS];
+
+	private static int blend = UNKNOWN; // 0 disabled, 1 enabled
+	private static int blendSrc = UNKNOWN, blendDst = UNKNOWN;
+	private static float lineWidth = Float.NaN;
+
+	// Calls of the running frame and of the last finished one
+	private static int issued, elided;
+	private static int issuedLastFrame, elidedLastFrame;
+
+	static {
+		Arrays.fill(textures, UNKNOWN);
+	}
+
+	private GLState() {}
+
+	public static void useProgram(int id) {
+		if (program == id) {
+			elided++;
+			return;
+		}
+
+		glUseProgram(id);
+		program = id;
+		issued++;
+	}
+
+	public static void bindVertexArray(int id) {
+		if (vertexArray == id) {
+			elided++;
+			return;
+		}
+
+		glBindVertexArray(id);
+		vertexArray = id;
+		issued++;
+	}
+
+	/**
+	 * Bind a texture to {@code GL_TEXTURE_2D} of a texture unit, the active unit is only switched when the
+	 * texture isn't bound there already.
+	 */
+
+	public static void bindTexture(int unit, int id) {
+		if (textures[unit] == id) {
+			elided++;
+			return;
+		}
+
+		activeTexture(unit);
+		glBindTexture(GL_TEXTURE_2D, id);
+		textures[unit] = id;
+		issued++;
+	}
+
+	/**
+	 * Bind a texture to {@code GL_TEXTURE_2D} of unit 0, the unit every shader of the engine samples from.
+	 */
+
+	public static void bindTexture(int id) {
+		bindTexture(0, id);
+	}
+
+	public static void setBlend(boolean enabled) {
+		int value = enabled ? 1 : 0;
+
+		if (blend == value) {
+			elided++;
+			return;
+		}
+
+		if (enabled) {
+			glEnable(GL_BLEND);
+		} else {
+			glDisable(GL_BLEND);
+		}
+		blend = value;
+		issued++;
+	}
+
+	public static void blendFunc(int src, int dst) {
+		if (blendSrc == src && blendDst == dst) {
+			elided++;
+			return;
+		}
+
+		glBlendFunc(src, dst);
+		blendSrc = src;
+		blendDst = dst;
+		issued++;
+	}
+
+	public static void lineWidth(float width) {
+		if (lineWidth == width) {
+			elided++;
+			return;
+		}
+
+		glLineWidth(width);
+		lineWidth = width;
+		issued++;
+	}
+
+	/**
+	 * Forget a texture that is being deleted, GL unbinds it from every unit so its handle may come back bound.
+	 */
+
+	public static void forgetTexture(int id) {
+		for (int unit = 0; unit < TEXTURE_UNITS; unit++) {
+			if (textures[unit] == id) {
+				textures[unit] = 0;
+			}
+		}
+	}
+
+	public static void forgetVertexArray(int id) {
+		if (vertexArray == id) {
+			vertexArray = 0;
+		}
+	}
+
+	public static void forgetProgram(int id) {
+		if (program == id) {
+			program = UNKNOWN; // A deleted program stays in use until another one is
+		}
+	}
+
+	/**
+	 * Drop everything that is cached, the next change of every state is issued.
+	 */
+
+	public static void invalidate() {
+		program = UNKNOWN;
+		vertexArray = UNKNOWN;
+		activeUnit = UNKNOWN;
+		Arrays.fill(textures, UNKNOWN);
+		blend = UNKNOWN;
+		blendSrc = blendDst = UNKNOWN;
+		lineWidth = Float.NaN;
+	}
+
+	/**
+	 * Close the counters of the running frame, called once per frame after drawing.
+	 */
+
+	public static void endFrame() {
+		issuedLastFrame = issued;
+		elidedLastFrame = elided;
+		issued = 0;
+		elided = 0;
+	}
+
+	/**
+	 * @return The amount of state changes that were passed on to GL during the last frame.
+	 */
+
+	public static int issuedLastFrame() {
+		return issuedLastFrame;
+	}
+
+	/**
+	 * @return The amount of state changes that were dropped as no-ops during the last frame.
+	 */
+
+	public static int elidedLastFrame() {
+		return elidedLastFrame;
+	}
+
+	public static int currentProgram() {
+		return program;
+	}
+
+	public static int currentVertexArray() {
+		return vertexArray;
+	}
+
+	private static void activeTexture(int unit) {
+		if (activeUnit != unit) {
+			glActiveTexture(GL_TEXTURE0 + unit);
+			activeUnit = unit;
+			issued++;
+		}
+	}
+}
@@ -0,0 +1,247 @@
+package com.zerologic.pong.engine;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.lwjgl.system.MemoryUtil.*;
+
+/**
+ * A compressor and decompressor of the LZ4 block format. Compression is the plain greedy single hash table
+ * variant, it only runs offline so it doesn't have to be fast, decompression is what runs when assets load.
+ */
+
+public class Lz4 {
+
+	private static final int MIN_MATCH = 4;
+	private static final int LAST_LITERALS = 5; // The last bytes of a block are always literals
+	private static final int MF_LIMIT = 12; // A match can't start within the last bytes of a block
+	private static final int MAX_OFFSET = 65535;
+
+	private static final int HASH_BITS = 16;
+
+	private static final int WILD_COPY = 16;
+	private static final int SHORT_COPY = 64;
+
+	private Lz4() {}
+
+	/**
+	 * @return The largest size {@code length} bytes can compress to.
+	 */
+
+	public static int maxCompressedLength(int length) {
+		return length + length / 255 + 16;
+	}
+
+	/**
+	 * Compress a block.
+	 *
+	 * @param src    The data to compress.
+	 * @param length The amount of bytes of {@code src} to compress.
+	 * @param dst    The target, at least {@link #maxCompressedLength(int)} bytes long.
+	 * @return The compressed size.
+	 */
+
+	public static int compress(byte[] src, int length, byte[] dst) {
+		int[] table = new int[1 << HASH_BITS];
+		Arrays.fill(table, -1);
+
+		int anchor = 0;
+		int ip = 0;
+		int op = 0;
+
+		int matchLimit = length - LAST_LITERALS;
+
+		while (ip < length - MF_LIMIT) {
+			int sequence = readInt(src, ip);
+			int hash = (sequence * -1640531535) >>> (32 - HASH_BITS);
+			int ref = table[hash];
+			table[hash] = ip;
+
+			if (ref < 0 || ip - ref > MAX_OFFSET || readInt(src, ref) != sequence) {
+				ip++;
+				continue;
+			}
+
+			int matchLength = MIN_MATCH;
+			while (ip + matchLength < matchLimit && src[ref + matchLength] == src[ip + matchLength]) {
+				matchLength++;
+			}
+
+			op = writeSequence(src, anchor, ip - anchor, ip - ref, matchLength, dst, op);
+
+			ip += matchLength;
+			anchor = ip;
+		}
+
+		return writeSequence(src, anchor, length - anchor, 0, 0, dst, op);
+	}
+
+	/**
+	 * Decompress a block, reading and writing the buffers in place so a mapped or direct block is never copied.
+	 *
+	 * @param src The compressed block, from its position to its limit. The position is not changed. Must be direct.
+	 * @param dst The target, from 0 to its capacity, which must be the decompressed size. Must be direct.
+	 * @throws IllegalArgumentException If the block is corrupt.
+	 */
+
+	public static void decompress(ByteBuffer src, ByteBuffer dst) {
+		if (!src.isDirect() || !dst.isDirect()) {
+			throw new IllegalArgumentException("LZ4 blocks are decompressed between direct buffers");
+		}
+
+		// Every read and copy is checked against the ends of the buffers, the addresses themselves are not
+		long in = memAddress(src);
+		long out = memAddress0(dst);
+		int end = src.remaining();
+		int capacity = dst.capacity();
+
+		int ip = 0;
+		int op = 0;
+
+		while (ip < end) {
+			int token = memGetByte(in + ip++) & 0xFF;
+
+			int literals = token >>> 4;
+			if (literals == 15) {
+				int b;
+				do {
+					check(ip < end, ip);
+					b = memGetByte(in + ip++) & 0xFF;
+					literals += b;
+				} while (b == 255);
+			}
+
+			check(literals <= end - ip && literals <= capacity - op, ip);
+			if (literals <= WILD_COPY && WILD_COPY <= end - ip && WILD_COPY <= capacity - op) {
+				wildCopy(in + ip, out + op);
+			} else {
+				copy(in + ip, out + op, literals);
+			}
+			ip += literals;
+			op += literals;
+
+			if (ip >= end) {
+				break; // The last sequence has no match
+			}
+
+			check(ip + 2 <= end, ip);
+			int offset = (memGetByte(in + ip) & 0xFF) | (memGetByte(in + ip + 1) & 0xFF) << 8;
+			ip += 2;
+
+			int matchLength = token & 15;
+			if (matchLength == 15) {
+				int b;
+				do {
+					check(ip < end, ip);
+					b = memGetByte(in + ip++) & 0xFF;
+					matchLength += b;
+				} while (b == 255);
+			}
+			matchLength += MIN_MATCH;
+
+			check(offset != 0 && offset <= op && matchLength <= capacity - op, ip);
+
+			if (offset >= 8 && matchLength <= WILD_COPY && WILD_COPY <= capacity - op) {
+				wildCopy(out + op - offset, out + op); // Every 8 bytes read were written before
+			} else if (offset >= matchLength) {
+				copy(out + op - offset, out + op, matchLength);
+			} else {
+				repeat(out + op, offset, matchLength);
+			}
+			op += matchLength;
+		}
+
+		if (op != capacity) {
+			throw new IllegalArgumentException("Corrupt LZ4 block, decompressed " + op + " of " + capacity + " bytes");
+		}
+	}
+
+	// Most literal runs and matches are a few bytes long. Where there's room after them they are copied as 16 bytes
+	// whatever their length, the bytes written past their end are overwritten by the sequences that follow.
+	private static void wildCopy(long src, long dst) {
+		memPutLong(dst, memGetLong(src));
+		memPutLong(dst + 8, memGetLong(src + 8));
+	}
+
+	// Copies that are too short to make up for the fixed cost of memCopy are done in place
+	private static void copy(long src, long dst, int length) {
+		if (length > SHORT_COPY) {
+			memCopy(src, dst, length);
+			return;
+		}
+
+		int i = 0;
+		for (; i + 8 <= length; i += 8) {
+			memPutLong(dst + i, memGetLong(src + i));
+		}
+		for (; i < length; i++) {
+			memPutByte(dst + i, memGetByte(src + i));
+		}
+	}
+
+	// Overlapping matches repeat the bytes they are still writing. The run repeats every offset bytes, so once
+	// a whole multiple of the offset of at least 8 bytes is written it's copied on from there 8 bytes at a time.
+	private static void repeat(long dst, int offset, int length) {
+		int step = offset;
+		while (step < 8) {
+			step += offset;
+		}
+
+		int i = 0;
+		for (; i < length && i < step - offset; i++) {
+			memPutByte(dst + i, memGetByte(dst + i - offset));
+		}
+		for (; i + 8 <= length; i += 8) {
+			memPutLong(dst + i, memGetLong(dst + i - step));
+		}
+		for (; i < length; i++) {
+			memPutByte(dst + i, memGetByte(dst + i - step));
+		}
+	}
+
+	private static void check(boolean valid, int ip) {
+		if (!valid) {
+			throw new IllegalArgumentException("Corrupt LZ4 block at " + ip);
+		}
+	}
+
+	private static int writeSequence(byte[] src, int literalStart, int literals, int offset, int matchLength, byte[] dst, int op) {
+		int tokenPos = op++;
+		int token = Math.min(literals, 15) << 4;
+
+		if (literals >= 15) {
+			op = writeLength(literals - 15, dst, op);
+		}
+
+		System.arraycopy(src, literalStart, dst, op, literals);
+		op += literals;
+
+		if (matchLength > 0) {
+			dst[op++] = (byte) offset;
+			dst[op++] = (byte) (offset >>> 8);
+
+			int length = matchLength - MIN_MATCH;
+			token |= Math.min(length, 15);
+
+			if (length >= 15) {
+				op = writeLength(length - 15, dst, op);
+			}
+		}
+
+		dst[tokenPos] = (byte) token;
+		return op;
+	}
+
+	private static int writeLength(int length, byte[] dst, int op) {
+		while (length >= 255) {
+			dst[op++] = (byte) 255;
+			length -= 255;
+		}
+		dst[op++] = (byte) length;
+		return op;
+	}
+
+	private static int readInt(byte[] src, int i) {
+		return (src[i] & 0xFF) | (src[i + 1] & 0xFF) << 8 | (src[i + 2] & 0xFF) << 16 | (src[i + 3] & 0xFF) << 24;
+	}
+}
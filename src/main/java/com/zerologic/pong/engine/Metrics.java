@@ -0,0 +1,334 @@
+package com.zerologic.pong.engine;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.invoke.VarHandle;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The {@code Metrics} class records where the time of every frame goes. The game loop brackets its phases with
+ * {@link #begin(Phase)} and {@link #end(Phase)}, the engine counts draw calls and uploaded bytes as it issues them,
+ * and {@link #endFrame()} stores the frame in a ring of the last {@link #CAPACITY} frames together with the state
+ * changes counted by {@code GLState} and the bytes the thread allocated.
+ * <p>
+ * The ring has a single writer, the GL thread, and can be read from any thread without locking: readers copy the
+ * frames and drop the ones that were overwritten while copying. Percentiles are computed over what was copied.
+ */
+
+public class Metrics {
+
+	public enum Phase { INPUT, SIMULATION, RENDER, SWAP }
+
+	/**
+	 * The values recorded for every frame.
+	 */
+
+	public enum Field {
+		FRAME_NANOS("frame_ns"),
+		INPUT_NANOS("input_ns"),
+		SIMULATION_NANOS("simulation_ns"),
+		RENDER_NANOS("render_ns"),
+		SWAP_NANOS("swap_ns"),
+		DRAW_CALLS("draw_calls"),
+		STATE_CHANGES("state_changes"),
+		STATE_CHANGES_ELIDED("state_changes_elided"),
+		BYTES_UPLOADED("bytes_uploaded"),
+		BYTES_ALLOCATED("bytes_allocated");
+
+		public final String label;
+
+		Field(String label) {
+			this.label = label;
+		}
+	}
+
+	public static final int CAPACITY = 1024; // Frames kept, a power of two
+
+	private static final Phase[] PHASES = Phase.values();
+	private static final Field[] FIELDS = Field.values();
+	private static final int STRIDE = FIELDS.length;
+
+	private static final double[] PERCENTILES = { 0.50, 0.95, 0.99 };
+
+	// Frame records, STRIDE values per frame
+	private static final long[] ring = new long[CAPACITY * STRIDE];
+	private static final AtomicLong written = new AtomicLong(); // Frames written so far, published after each record
+
+	// Running frame, only touched by the GL thread
+	private static final long[] phaseStart = new long[PHASES.length];
+	private static final long[] phaseNanos = new long[PHASES.length];
+	private static long frameStart;
+	private static long allocatedAtStart;
+	private static int drawCalls;
+	private static long bytesUploaded;
+
+	private static final com.sun.management.ThreadMXBean threads = allocationBean();
+
+	private Metrics() {}
+
+	/**
+	 * Start recording a frame, called at the top of the game loop.
+	 */
+
+	public static void beginFrame() {
+		Arrays.fill(phaseNanos, 0);
+		drawCalls = 0;
+		bytesUploaded = 0;
+
+		allocatedAtStart = allocatedBytes();
+		frameStart = System.nanoTime();
+	}
+
+	public static void begin(Phase phase) {
+		phaseStart[phase.ordinal()] = System.nanoTime();
+	}
+
+	/**
+	 * End a phase, a phase that runs several times in a frame adds up.
+	 */
+
+	public static void end(Phase phase) {
+		phaseNanos[phase.ordinal()] += System.nanoTime() - phaseStart[phase.ordinal()];
+	}
+
+	public static void drawCall() {
+		drawCalls++;
+	}
+
+	/**
+	 * Count bytes sent to GL with a buffer or texture upload.
+	 */
+
+	public static void uploaded(long bytes) {
+		bytesUploaded += bytes;
+	}
+
+	/**
+	 * Store the running frame in the ring, called after {@code GLState.endFrame()} so its counters are complete.
+	 */
+
+	public static void endFrame() {
+		long frameNanos = System.nanoTime() - frameStart;
+		long allocated = allocatedBytes() - allocatedAtStart;
+
+		long frame = written.get();
+		int i = (int) (frame & (CAPACITY - 1)) * STRIDE;
+
+		ring[i + Field.FRAME_NANOS.ordinal()] = frameNanos;
+		ring[i + Field.INPUT_NANOS.ordinal()] = phaseNanos[Phase.INPUT.ordinal()];
+		ring[i + Field.SIMULATION_NANOS.ordinal()] = phaseNanos[Phase.SIMULATION.ordinal()];
+		ring[i + Field.RENDER_NANOS.ordinal()] = phaseNanos[Phase.RENDER.ordinal()];
+		ring[i + Field.SWAP_NANOS.ordinal()] = phaseNanos[Phase.SWAP.ordinal()];
+		ring[i + Field.DRAW_CALLS.ordinal()] = drawCalls;
+		ring[i + Field.STATE_CHANGES.ordinal()] = GLState.issuedLastFrame();
+		ring[i + Field.STATE_CHANGES_ELIDED.ordinal()] = GLState.elidedLastFrame();
+		ring[i + Field.BYTES_UPLOADED.ordinal()] = bytesUploaded;
+		ring[i + Field.BYTES_ALLOCATED.ordinal()] = allocated;
+
+		written.set(frame + 1); // Volatile write publishes the record to readers
+	}
+
+	/**
+	 * @return The amount of frames recorded since start, older ones than the last {@link #CAPACITY} are gone.
+	 */
+
+	public static long frameCount() {
+		return written.get();
+	}
+
+	/**
+	 * Copy one value of every frame still in the ring, oldest first.
+	 *
+	 * @param field The value to copy.
+	 * @param out   Receives the values, should hold {@link #CAPACITY} elements.
+	 * @return The amount of values copied.
+	 */
+
+	public static int copy(Field field, long[] out) {
+		long end = written.get();
+		long start = Math.max(0, end - Math.min(CAPACITY, out.length));
+
+		int count = 0;
+		for (long frame = start; frame < end; frame++) {
+			out[count++] = ring[(int) (frame & (CAPACITY - 1)) * STRIDE + field.ordinal()];
+		}
+
+		long overwritten = overwritten(start);
+		if (overwritten > 0) {
+			int drop = (int) Math.min(count, overwritten);
+			System.arraycopy(out, drop, out, 0, count - drop);
+			count -= drop;
+		}
+		return count;
+	}
+
+	/**
+	 * Compute the 50th, 95th and 99th percentile of a value over the frames in the ring.
+	 *
+	 * @param field   The value to summarize.
+	 * @param scratch Working space of {@link #CAPACITY} elements, passed in so summarizing doesn't allocate.
+	 * @param out     Receives p50, p95 and p99.
+	 * @return The amount of frames the percentiles were computed over, the output is left alone if 0.
+	 */
+
+	public static int percentiles(Field field, long[] scratch, long[] out) {
+		int count = copy(field, scratch);
+		if (count == 0) {
+			return 0;
+		}
+
+		heapSort(scratch, count);
+		select(scratch, count, out);
+		return count;
+	}
+
+	/**
+	 * Write every frame in the ring as CSV, one row per frame with a header of the field labels.
+	 */
+
+	public static void dumpCsv(Path file) throws IOException {
+		long[][] columns = columns();
+
+		try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+			for (int f = 0; f < STRIDE; f++) {
+				out.print(f == 0 ? "" : ",");
+				out.print(FIELDS[f].label);
+			}
+			out.println();
+
+			for (int row = 0; row < columns[0].length; row++) {
+				for (int f = 0; f < STRIDE; f++) {
+					out.print(f == 0 ? "" : ",");
+					out.print(columns[f][row]);
+				}
+				out.println();
+			}
+		}
+	}
+
+	/**
+	 * Write the percentiles of every field and every frame in the ring as JSON.
+	 */
+
+	public static void dumpJson(Path file) throws IOException {
+		long[][] columns = columns();
+		long[] summary = new long[PERCENTILES.length];
+
+		try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+			out.println("{");
+			out.printf(Locale.ROOT, "  \"frames\": %d,%n", columns[0].length);
+
+			out.println("  \"percentiles\": {");
+			for (int f = 0; f < STRIDE; f++) {
+				long[] sorted = columns[f].clone();
+				Arrays.sort(sorted);
+				select(sorted, sorted.length, summary);
+				out.printf(Locale.ROOT, "    \"%s\": { \"p50\": %d, \"p95\": %d, \"p99\": %d }%s%n",
+					FIELDS[f].label, summary[0], summary[1], summary[2], f == STRIDE - 1 ? "" : ",");
+			}
+			out.println("  },");
+
+			out.println("  \"samples\": {");
+			for (int f = 0; f < STRIDE; f++) {
+				out.printf(Locale.ROOT, "    \"%s\": %s%s%n", FIELDS[f].label, Arrays.toString(columns[f]), f == STRIDE - 1 ? "" : ",");
+			}
+			out.println("  }");
+			out.println("}");
+		}
+	}
+
+	// Copies whole frame records so every column covers the same frames
+	private static long[][] columns() {
+		long[] records = new long[CAPACITY * STRIDE];
+
+		long end = written.get();
+		long start = Math.max(0, end - CAPACITY);
+
+		int count = 0;
+		for (long frame = start; frame < end; frame++, count++) {
+			System.arraycopy(ring, (int) (frame & (CAPACITY - 1)) * STRIDE, records, count * STRIDE, STRIDE);
+		}
+
+		int drop = (int) Math.min(count, Math.max(0, overwritten(start)));
+
+		long[][] columns = new long[STRIDE][count - drop];
+		for (int row = drop; row < count; row++) {
+			for (int f = 0; f < STRIDE; f++) {
+				columns[f][row - drop] = records[row * STRIDE + f];
+			}
+		}
+		return columns;
+	}
+
+	// Frames from start on the writer got to while they were copied, they are torn and dropped from the front. The
+	// writer fills the slot of frame written before publishing it, so that slot counts as overwritten too. The fence
+	// keeps the copy's reads of the ring from moving after the second read of the count.
+	private static long overwritten(long start) {
+		VarHandle.acquireFence();
+		return written.get() + 1 - CAPACITY - start;
+	}
+
+	// Nearest rank percentiles of sorted values, the output is left alone if there are none
+	private static void select(long[] sorted, int count, long[] out) {
+		if (count == 0) {
+			return;
+		}
+
+		for (int i = 0; i < PERCENTILES.length; i++) {
+			out[i] = sorted[(int) Math.ceil(PERCENTILES[i] * count) - 1];
+		}
+	}
+
+	// Arrays.sort allocates buffers for input made of long runs, which frame values usually are, the overlay sorts
+	// every refresh so it sorts in place instead
+	private static void heapSort(long[] values, int count) {
+		for (int i = count / 2 - 1; i >= 0; i--) {
+			siftDown(values, i, count);
+		}
+
+		for (int end = count - 1; end > 0; end--) {
+			long top = values[0];
+			values[0] = values[end];
+			values[end] = top;
+			siftDown(values, 0, end);
+		}
+	}
+
+	private static void siftDown(long[] values, int i, int count) {
+		long value = values[i];
+
+		int child;
+		while ((child = 2 * i + 1) < count) {
+			if (child + 1 < count && values[child + 1] > values[child]) {
+				child++;
+			}
+			if (values[child] <= value) {
+				break;
+			}
+			values[i] = values[child];
+			i = child;
+		}
+		values[i] = value;
+	}
+
+	private static long allocatedBytes() {
+		return threads != null ? threads.getCurrentThreadAllocatedBytes() : 0;
+	}
+
+	// Allocation counting is a HotSpot extension, without it allocations are reported as 0
+	private static com.sun.management.ThreadMXBean allocationBean() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+		if (bean instanceof com.sun.management.ThreadMXBean threads && threads.isThreadAllocatedMemorySupported()) {
+			threads.setThreadAllocatedMemoryEnabled(true);
+			return threads;
+		}
+		return null;
+	}
+}
@@ -0,0 +1,149 @@
+package com.zerologic.pong.engine;
+
+import org.lwjgl.BufferUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.lwjgl.opengl.GL30.*;
+
+/**
+ * The {@code Ptex} class is a texture in the pre-decoded {@code .ptex} format that {@code PtexConverter} writes.
+ * A ptex holds the pixels of every mip level exactly as they are uploaded, so loading one only has to read the
+ * header and hand the levels to GL, there is no image decoding and no {@code glGenerateMipmap}. Levels can be
+ * stored raw, which serves them straight out of the mapped file, or LZ4 compressed, which is much faster to
+ * decompress than PNG.
+ * <p>
+ * Layout, big endian:
+ * <pre>
+ * header  int magic ("PTEX"), int version, int format (GL_RGB or GL_RGBA), int width, int height,
+ *         int level count, int codec
+ * levels  per level: int size, int stored size
+ * data    the stored bytes of every level, largest level first, rows tightly packed top row first
+ * </pre>
+ */
+
+public class Ptex {
+
+	public static final int MAGIC = 0x50544558; // "PTEX"
+	public static final int VERSION = 1;
+
+	public static final int CODEC_RAW = 0;
+	public static final int CODEC_LZ4 = 1;
+
+	public static final String EXTENSION = ".ptex";
+
+	private static final int HEADER_SIZE = 28;
+
+	public final int format;
+	public final int width;
+	public final int height;
+	private final ByteBuffer[] levels;
+
+	private Ptex(int format, int width, int height, ByteBuffer[] levels) {
+		this.format = format;
+		this.width = width;
+		this.height = height;
+		this.levels = levels;
+	}
+
+	/**
+	 * Load a ptex through the {@code Resources}.
+	 *
+	 * @param flip Whether to flip every level vertically, for textures drawn bottom row first.
+	 */
+
+	public static Ptex load(String name, boolean flip) throws IOException {
+		return read(Resources.read(name), flip);
+	}
+
+	/**
+	 * Parse a ptex and decompress its levels, raw levels are views into {@code buffer}.
+	 */
+
+	public static Ptex read(ByteBuffer buffer) throws IOException {
+		return read(buffer, false);
+	}
+
+	/**
+	 * Parse a ptex and decompress its levels, raw levels are views into {@code buffer} unless they are flipped.
+	 *
+	 * @param flip Whether to flip every level vertically, for textures drawn bottom row first.
+	 */
+
+	public static Ptex read(ByteBuffer buffer, boolean flip) throws IOException {
+		ByteBuffer data = buffer.slice().order(ByteOrder.BIG_ENDIAN); // Direct buffers from BufferUtils are native order
+
+		if (data.remaining() < HEADER_SIZE || data.getInt(0) != MAGIC) {
+			throw new IOException("Not a ptex texture");
+		}
+
+		if (data.getInt(4) != VERSION) {
+			throw new IOException("Unsupported ptex version " + data.getInt(4));
+		}
+
+		int format = data.getInt(8);
+		int width = data.getInt(12);
+		int height = data.getInt(16);
+		int count = data.getInt(20);
+		int codec = data.getInt(24);
+
+		if (codec != CODEC_RAW && codec != CODEC_LZ4) {
+			throw new IOException("Unknown ptex codec " + codec);
+		}
+
+		ByteBuffer[] levels = new ByteBuffer[count];
+		int offset = HEADER_SIZE + count * 8;
+
+		for (int i = 0; i < count; i++) {
+			int size = data.getInt(HEADER_SIZE + i * 8);
+			int storedSize = data.getInt(HEADER_SIZE + i * 8 + 4);
+
+			if (offset + storedSize > data.limit()) {
+				throw new IOException("Ptex texture is truncated");
+			}
+
+			ByteBuffer stored = data.slice(offset, storedSize);
+
+			if (codec == CODEC_RAW && !flip) {
+				levels[i] = stored;
+			} else if (codec == CODEC_RAW) {
+				levels[i] = BufferUtils.createByteBuffer(size).put(0, stored, 0, size); // The mapped file can't be flipped in place
+			} else {
+				levels[i] = BufferUtils.createByteBuffer(size);
+				try {
+					Lz4.decompress(stored, levels[i]);
+				} catch (IllegalArgumentException e) {
+					throw new IOException("Ptex level " + i + " is corrupt", e);
+				}
+			}
+			if (flip) {
+				Texture.flipRows(levels[i], Math.max(1, width >> i) * channels(format), Math.max(1, height >> i));
+			}
+			offset += storedSize;
+		}
+
+		return new Ptex(format, width, height, levels);
+	}
+
+	public int levelCount() {
+		return levels.length;
+	}
+
+	/**
+	 * @return The pixels of a mip level, level 0 is the full size image.
+	 */
+
+	public ByteBuffer level(int level) {
+		return levels[level];
+	}
+
+	public int channels() {
+		return channels(format);
+	}
+
+	static int channels(int format) {
+		return format == GL_RGBA ? 4 : 3;
+	}
+}
@@ -0,0 +1,188 @@
+package com.zerologic.pong.engine;
+
+import org.lwjgl.BufferUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.stb.STBImage.*;
+
+/**
+ * Converts images to the pre-decoded {@code .ptex} format read by {@code Ptex}. The image is decoded, its mip chain
+ * is generated with a box filter and every level is stored raw or LZ4 compressed. Images with an alpha channel
+ * become {@code GL_RGBA} textures, all others {@code GL_RGB}.
+ * <p>
+ * Usage: {@code PtexConverter <image or directory> <output directory> [raw|lz4]}
+ */
+
+public class PtexConverter {
+
+	private static final String[] IMAGE_EXTENSIONS = { ".png", ".jpg", ".jpeg", ".bmp", ".tga" };
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("Usage: PtexConverter <image or directory> <output directory> [raw|lz4]");
+			System.exit(1);
+		}
+
+		Path source = Path.of(args[0]);
+		Path target = Path.of(args[1]);
+		int codec = args.length > 2 && args[2].equalsIgnoreCase("raw") ? Ptex.CODEC_RAW : Ptex.CODEC_LZ4;
+
+		List<Path> images = new ArrayList<>();
+		try (Stream<Path> files = Files.walk(source)) {
+			files.filter(file -> Files.isRegularFile(file) && isImage(file.toString())).sorted().forEach(images::add);
+		}
+
+		for (Path image : images) {
+			String name = Files.isDirectory(source) ? source.relativize(image).toString() : image.getFileName().toString();
+			Path output = target.resolve(name.substring(0, name.lastIndexOf('.')) + Ptex.EXTENSION);
+
+			byte[] ptex = encode(ResourceReader.map(image.toString()), codec);
+
+			Files.createDirectories(output.toAbsolutePath().getParent());
+			Files.write(output, ptex);
+
+			System.out.printf("%s -> %s (%d bytes)%n", image, output, ptex.length);
+		}
+	}
+
+	/**
+	 * Decode an image file and encode it as a ptex.
+	 *
+	 * @param image The contents of the image file.
+	 * @param codec {@link Ptex#CODEC_RAW} or {@link Ptex#CODEC_LZ4}.
+	 * @return The contents of the ptex file.
+	 */
+
+	public static byte[] encode(ByteBuffer image, int codec) throws IOException {
+		IntBuffer w = BufferUtils.createIntBuffer(1);
+		IntBuffer h = BufferUtils.createIntBuffer(1);
+		IntBuffer comp = BufferUtils.createIntBuffer(1);
+
+		if (!stbi_info_from_memory(image, w, h, comp)) {
+			throw new IOException("Unable to decode image: " + stbi_failure_reason());
+		}
+
+		int format = comp.get(0) == 2 || comp.get(0) == 4 ? GL_RGBA : GL_RGB;
+		int channels = Ptex.channels(format);
+
+		ByteBuffer pixels = stbi_load_from_memory(image, w, h, comp, channels);
+		if (pixels == null) {
+			throw new IOException("Unable to decode image: " + stbi_failure_reason());
+		}
+
+		int width = w.get(0);
+		int height = h.get(0);
+
+		byte[] level = new byte[width * height * channels];
+		pixels.get(0, level);
+		stbi_image_free(pixels);
+
+		return encode(level, width, height, format, codec);
+	}
+
+	/**
+	 * Encode decoded pixels, tightly packed top row first, as a ptex.
+	 */
+
+	public static byte[] encode(byte[] pixels, int width, int height, int format, int codec) {
+		int channels = Ptex.channels(format);
+
+		List<byte[]> levels = new ArrayList<>();
+		levels.add(pixels);
+
+		int w = width;
+		int h = height;
+		while (w > 1 || h > 1) {
+			levels.add(downsample(levels.get(levels.size() - 1), w, h, channels));
+			w = Math.max(1, w / 2);
+			h = Math.max(1, h / 2);
+		}
+
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(bytes);
+
+			out.writeInt(Ptex.MAGIC);
+			out.writeInt(Ptex.VERSION);
+			out.writeInt(format);
+			out.writeInt(width);
+			out.writeInt(height);
+			out.writeInt(levels.size());
+			out.writeInt(codec);
+
+			List<byte[]> stored = new ArrayList<>();
+			for (byte[] level : levels) {
+				byte[] data = level;
+
+				if (codec == Ptex.CODEC_LZ4) {
+					byte[] compressed = new byte[Lz4.maxCompressedLength(level.length)];
+					int size = Lz4.compress(level, level.length, compressed);
+					data = Arrays.copyOf(compressed, size);
+				}
+
+				out.writeInt(level.length);
+				out.writeInt(data.length);
+				stored.add(data);
+			}
+
+			for (byte[] data : stored) {
+				out.write(data);
+			}
+
+			out.flush();
+			return bytes.toByteArray();
+		} catch (IOException e) {
+			throw new IllegalStateException(e); // Can't happen when writing to memory
+		}
+	}
+
+	// Halves the image with a 2x2 box filter, a side of odd length drops its last row or column
+	private static byte[] downsample(byte[] src, int width, int height, int channels) {
+		int w = Math.max(1, width / 2);
+		int h = Math.max(1, height / 2);
+		byte[] dst = new byte[w * h * channels];
+
+		for (int y = 0; y < h; y++) {
+			int y0 = Math.min(y * 2, height - 1);
+			int y1 = Math.min(y * 2 + 1, height - 1);
+
+			for (int x = 0; x < w; x++) {
+				int x0 = Math.min(x * 2, width - 1);
+				int x1 = Math.min(x * 2 + 1, width - 1);
+
+				for (int c = 0; c < channels; c++) {
+					int sum = (src[(y0 * width + x0) * channels + c] & 0xFF)
+						+ (src[(y0 * width + x1) * channels + c] & 0xFF)
+						+ (src[(y1 * width + x0) * channels + c] & 0xFF)
+						+ (src[(y1 * width + x1) * channels + c] & 0xFF);
+
+					dst[(y * w + x) * channels + c] = (byte) ((sum + 2) / 4);
+				}
+			}
+		}
+		return dst;
+	}
+
+	private static boolean isImage(String name) {
+		String lower = name.toLowerCase(Locale.ROOT);
+		for (String extension : IMAGE_EXTENSIONS) {
+			if (lower.endsWith(extension)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,51 @@
+package com.zerologic.pong.engine;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The {@code ResourceReader} utility class reads asset files by memory mapping them. The returned buffers are
+ * direct, so they can be handed straight to stb ({@code stbtt_InitFont}, {@code stbi_load_from_memory}) without
+ * reading the file onto the heap and copying it into a native buffer first.
+ * <p>
+ * A mapping stays valid until its buffer is garbage collected, so whoever keeps using the data, like
+ * stb_truetype does with font files, has to keep a reference to the buffer.
+ */
+
+public class ResourceReader {
+
+	private ResourceReader() {}
+
+	/**
+	 * Map a file read only.
+	 *
+	 * @param filepath The path of the file.
+	 * @return A direct buffer of the whole file.
+	 * @throws IOException If the file can't be opened or is too large to be mapped.
+	 */
+
+	public static MappedByteBuffer map(String filepath) throws IOException {
+		try (FileChannel channel = FileChannel.open(Path.of(filepath), StandardOpenOption.READ)) {
+			long size = channel.size();
+
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException(filepath + " is too large to be mapped");
+			}
+
+			// The mapping stays valid after the channel is closed
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+		}
+	}
+
+	/**
+	 * Read a UTF-8 text file, e.g. a shader source.
+	 */
+
+	public static String readString(String filepath) throws IOException {
+		return StandardCharsets.UTF_8.decode(map(filepath)).toString();
+	}
+}
@@ -0,0 +1,196 @@
+package com.zerologic.pong.engine;
+
+import org.lwjgl.BufferUtils;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The {@code Resources} utility class serves assets by their logical name, the path relative to the resources
+ * directory, e.g. {@code "textures/def.png"}. Assets are looked up in this order:
+ * <ol>
+ *     <li>the packed {@code assets.pak} archive the build writes next to the classes, mapped once on first use</li>
+ *     <li>{@code src/main/resources} in the working directory, for assets that aren't packed yet</li>
+ *     <li>the classpath</li>
+ *     <li>the name as a plain file path, e.g. a system font</li>
+ * </ol>
+ * An archive on the classpath takes precedence, so an asset edited in {@code src/main/resources} is only picked up
+ * once the build packed it again. Paths that still point into {@code src/main/resources} are turned into logical names. The archive location
+ * can be overridden with the {@code pong.assets} system property.
+ */
+
+public class Resources {
+
+	public static final String ARCHIVE_NAME = "assets.pak";
+	private static final String SOURCE_DIRECTORY = "src/main/resources/";
+
+	private static AssetArchive archive;
+	private static boolean mounted = false;
+
+	private Resources() {}
+
+	/**
+	 * Get the data of an asset.
+	 *
+	 * @param name The logical name of the asset, or a file path.
+	 * @return A direct buffer of the asset.
+	 * @throws FileNotFoundException If no asset or file has that name.
+	 */
+
+	public static ByteBuffer read(String name) throws IOException {
+		String logical = logicalName(name);
+
+		AssetArchive archive = archive();
+		if (archive != null) {
+			ByteBuffer data = archive.get(logical);
+
+			if (data != null) {
+				return data;
+			}
+		}
+
+		File source = new File(SOURCE_DIRECTORY + logical);
+		if (source.isFile()) {
+			return ResourceReader.map(source.getPath());
+		}
+
+		try (InputStream stream = Resources.class.getClassLoader().getResourceAsStream(logical)) {
+			if (stream != null) {
+				byte[] bytes = stream.readAllBytes();
+				return BufferUtils.createByteBuffer(bytes.length).put(bytes).flip();
+			}
+		}
+
+		if (new File(name).isFile()) {
+			return ResourceReader.map(name);
+		}
+
+		throw new FileNotFoundException(name);
+	}
+
+	/**
+	 * Read a UTF-8 text asset, e.g. a shader source.
+	 */
+
+	public static String readString(String name) throws IOException {
+		return StandardCharsets.UTF_8.decode(read(name)).toString();
+	}
+
+	/**
+	 * @param directory The logical name of a directory, e.g. {@code "textures"}.
+	 * @return The logical names of every asset below the directory, in sorted order.
+	 */
+
+	public static List<String> list(String directory) {
+		String prefix = directoryPrefix(directory);
+
+		AssetArchive archive = archive();
+		if (archive != null) {
+			List<String> names = archive.list(prefix);
+
+			if (!names.isEmpty()) {
+				return names;
+			}
+		}
+
+		List<String> names = new ArrayList<>();
+		collect(new File(SOURCE_DIRECTORY + prefix), prefix, names);
+
+		Collections.sort(names);
+		return names;
+	}
+
+	/**
+	 * @return The mounted archive, or null if the assets are read from the resources directory.
+	 */
+
+	public static synchronized AssetArchive archive() {
+		if (!mounted) {
+			mounted = true;
+			archive = mount();
+		}
+		return archive;
+	}
+
+	private static AssetArchive mount() {
+		try {
+			String override = System.getProperty("pong.assets");
+			if (override != null) {
+				return AssetArchive.open(override);
+			}
+
+			URL url = Resources.class.getClassLoader().getResource(ARCHIVE_NAME);
+			if (url == null) {
+				return null;
+			}
+
+			if (url.getProtocol().equals("file")) {
+				return AssetArchive.open(Path.of(url.toURI()).toString());
+			}
+
+			// Inside a jar the archive can't be mapped, it is read into memory once instead
+			try (InputStream stream = url.openStream()) {
+				byte[] bytes = stream.readAllBytes();
+				return AssetArchive.read(BufferUtils.createByteBuffer(bytes.length).put(bytes).flip());
+			}
+		} catch (IOException | URISyntaxException e) {
+			System.err.println("Unable to mount " + ARCHIVE_NAME + ", reading assets from " + SOURCE_DIRECTORY + ": " + e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * @return The logical name of a path that points into {@code src/main/resources}, other names are returned as they are.
+	 */
+
+	public static String logicalName(String name) {
+		String logical = name.replace('\\', '/');
+
+		if (logical.startsWith("./")) {
+			logical = logical.substring(2);
+		}
+
+		if (logical.startsWith(SOURCE_DIRECTORY)) {
+			logical = logical.substring(SOURCE_DIRECTORY.length());
+		}
+		return logical;
+	}
+
+	/**
+	 * @return The logical name of the directory with a trailing slash, the prefix of every asset in it.
+	 */
+
+	public static String directoryPrefix(String directory) {
+		String prefix = logicalName(directory);
+		if (!prefix.isEmpty() && !prefix.endsWith("/")) {
+			prefix += "/";
+		}
+		return prefix;
+	}
+
+	private static void collect(File directory, String prefix, List<String> names) {
+		File[] files = directory.listFiles();
+
+		if (files == null) {
+			return;
+		}
+
+		for (File file : files) {
+			if (file.isDirectory()) {
+				collect(file, prefix + file.getName() + "/", names);
+			} else {
+				names.add(prefix + file.getName());
+			}
+		}
+	}
+}
@@ -1,11 +1,13 @@
 package com.zerologic.pong.engine;
 
-import com.zerologic.pong.Game;
 import org.joml.Matrix4f;
 import org.joml.Vector4f;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
+import org.lwjgl.system.MemoryStack;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
 
 import static org.lwjgl.opengl.GL40.*;
 
@@ -19,10 +21,19 @@ public class ShaderProgram {
 	int fragmentShader; // Fragment shader handle
 	String fragmentShaderSource;
 
-	// Matrices for vertices drawn
-	public Matrix4f projection = new Matrix4f();
-	public Matrix4f model      = new Matrix4f();
-	public Matrix4f transform  = new Matrix4f();
+	// Matrix of the object drawn, the projection and transform are shared by all programs through the Camera
+	public Matrix4f model = new Matrix4f();
+
+	// Active uniforms, introspected once after linking. A uniform handle is an index into these arrays.
+	private final HashMap<String, Integer> uniformHandles = new HashMap<>();
+	private int[] uniformLocations;
+	private float[] uniformValues; // Last uploaded value of each uniform, 16 floats per uniform
+	private boolean[] uniformUploaded;
+
+	private final float[] scratch = new float[16];
+
+	// Handle of the matrix every program is expected to have
+	private int modelUniform;
 
 	public ShaderProgram(String vertPath, String fragPath) {
 		vertexShaderSource = ShaderProgram.readStringFromFile(vertPath);
@@ -31,6 +42,24 @@ public class ShaderProgram {
 		init();
 	}
 
+	private ShaderProgram() {}
+
+	/**
+	 * Create a program from shader sources that were already read, e.g. by the {@code AssetLoader}.
+	 *
+	 * @param vertSource The source of the vertex shader.
+	 * @param fragSource The source of the fragment shader.
+	 */
+
+	public static ShaderProgram fromSource(String vertSource, String fragSource) {
+		ShaderProgram program = new ShaderProgram();
+		program.vertexShaderSource = vertSource;
+		program.fragmentShaderSource = fragSource;
+
+		program.init();
+		return program;
+	}
+
 	private void init() {
 		ID = glCreateProgram(); // Create the shader program
 		vertexShader = glCreateShader(GL_VERTEX_SHADER); // Create the vertex shader
@@ -49,6 +78,8 @@ public class ShaderProgram {
 		glAttachShader(ID, fragmentShader);
 		glLinkProgram(ID);
 
+		loadUniforms();
+		Camera.attach(ID);
 		initMatrices();
 
 		// Delete the shaders as we no longer need them
@@ -56,61 +87,132 @@ public class ShaderProgram {
 		glDeleteShader(fragmentShader);
 	}
 
-	public void initMatrices() {
-		// Set up matrices
-		glUseProgram(ID);
-		projection.setOrtho(0.0f, Game.getWinWidth(), Game.getWinHeight(), 0.0f, -1.0f, 1.0f);
-
-		// Apply to shader program
-		setMatrix4f(projection, "projection");
-		setMatrix4f(model, "model");
-		setMatrix4f(transform, "transform");
-
-		glUseProgram(0);
+	private void initMatrices() {
+		GLState.useProgram(ID);
+		setMatrix4f(modelUniform, model);
+		GLState.useProgram(0);
 	}
 
 	public void setModel(Matrix4f m) {
 		m.get(this.model);
 	}
 
-	public void setTransform(Matrix4f t) {
-		t.get(this.model);
+	public void updateModel() {
+		setMatrix4f(modelUniform, this.model);
 	}
 
-	public void updateModel() {
-		setMatrix4f(this.model, "model");
+	public void resetModel() {
+		this.model.identity();
+		setMatrix4f(modelUniform, this.model);
 	}
 
-	public void updateTransform() {
-		setMatrix4f(this.transform, "transform");
+	public void use() {
+		GLState.useProgram(this.ID);
 	}
 
-	public void resetModel() {
-		this.model.identity();
-		setMatrix4f(this.model, "model");
+	public static void use(int id) {
+		GLState.useProgram(id);
 	}
 
-	public void resetTransform() {
-		this.transform.identity();
-		setMatrix4f(this.transform, "transform");
+	/**
+	 * Deletes the GL program, the program can't be used afterwards.
+	 */
+
+	public void destroy() {
+		GLState.forgetProgram(ID);
+		glDeleteProgram(ID);
+		ID = 0;
 	}
 
-	public void use() {
-		glUseProgram(this.ID);
+	/**
+	 * Resolve the handle of an active uniform, the handle can be kept and passed to the typed setters
+	 * so that no name lookup has to be done when drawing.
+	 *
+	 * @param name The name of the uniform in the shader source.
+	 * @return The uniform handle, or -1 if the program has no active uniform with that name.
+	 */
+
+	public int uniform(String name) {
+		return uniformHandles.getOrDefault(name, -1);
 	}
 
-	public static void use(int id) {
-		glUseProgram(id);
+	/**
+	 * Upload a matrix to the uniform with the given handle, the upload is skipped if the value has not
+	 * changed since it was last set. The program must be in use.
+	 */
+
+	public void setMatrix4f(int uniform, Matrix4f matrix) {
+		if (uniform < 0) {
+			return;
+		}
+
+		matrix.get(scratch);
+		if (copyIfChanged(scratch, 16, uniformValues, uniform * 16) || !uniformUploaded[uniform]) {
+			uniformUploaded[uniform] = true;
+			glUniformMatrix4fv(uniformLocations[uniform], false, scratch);
+		}
+	}
+
+	/**
+	 * Upload a vector to the uniform with the given handle, the upload is skipped if the value has not
+	 * changed since it was last set. The program must be in use.
+	 */
+
+	public void setVector4f(int uniform, Vector4f vec) {
+		if (uniform < 0) {
+			return;
+		}
+
+		scratch[0] = vec.x;
+		scratch[1] = vec.y;
+		scratch[2] = vec.z;
+		scratch[3] = vec.w;
+		if (copyIfChanged(scratch, 4, uniformValues, uniform * 16) || !uniformUploaded[uniform]) {
+			uniformUploaded[uniform] = true;
+			glUniform4f(uniformLocations[uniform], vec.x(), vec.y(), vec.z(), vec.w());
+		}
 	}
 
-	public void setMatrix4f(Matrix4f matrix, String query) {
-		int loc = glGetUniformLocation(this.ID, query);
-		glUniformMatrix4fv(loc, false, matrix.get(new float[16]));
+	/**
+	 * Copy {@code length} floats of {@code src} into {@code cache} starting at {@code offset}.
+	 *
+	 * @return Whether the cached values differed from the source.
+	 */
+
+	private static boolean copyIfChanged(float[] src, int length, float[] cache, int offset) {
+		if (Arrays.equals(src, 0, length, cache, offset, offset + length)) {
+			return false;
+		}
+
+		System.arraycopy(src, 0, cache, offset, length);
+		return true;
 	}
 
-	public void setVector4f(Vector4f vec, String query) {
-		int loc = glGetUniformLocation(this.ID, query);
-		glUniform4f(loc, vec.x(), vec.y(), vec.z(), vec.w());
+	private void loadUniforms() {
+		int count = glGetProgrami(ID, GL_ACTIVE_UNIFORMS);
+
+		uniformLocations = new int[count];
+		uniformValues = new float[count * 16];
+		uniformUploaded = new boolean[count];
+
+		try (MemoryStack stack = MemoryStack.stackPush()) {
+			IntBuffer size = stack.mallocInt(1);
+			IntBuffer type = stack.mallocInt(1);
+
+			for (int i = 0; i < count; i++) {
+				String name = glGetActiveUniform(ID, i, size, type);
+
+				// Arrays are reported as "name[0]", they are looked up by their plain name
+				if (name.endsWith("[0]")) {
+					name = name.substring(0, name.length() - 3);
+				}
+
+				uniformHandles.put(name, i);
+				uniformLocations[i] = glGetUniformLocation(ID, name);
+			}
+		}
+
+		modelUniform = uniform("model");
 	}
 
 	private void checkShader(int shader) {
@@ -120,19 +222,10 @@ public class ShaderProgram {
 		}
 	}
 
-	private static String readStringFromFile(String filePath) {
+	static String readStringFromFile(String filePath) {
 
 		try {
-			BufferedReader reader = new BufferedReader(new FileReader(filePath));
-			StringBuilder sb = new StringBuilder();
-
-			String store;
-
-			while((store = reader.readLine()) != null) {
-				sb.append(store).append("\r\n");
-			}
-			return sb.toString();
-
+			return Resources.readString(filePath);
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
@@ -0,0 +1,224 @@
+package com.zerologic.pong.engine;
+
+import com.zerologic.pong.engine.components.GameObject;
+
+import java.util.Arrays;
+
+/**
+ * The {@code SpatialGrid} class is a broad phase for many axis aligned boxes. Boxes are kept as a structure of
+ * arrays and sorted into the cells of a uniform grid they overlap, only boxes sharing a cell are tested against each
+ * other, so finding the overlapping pairs takes time close to linear in the amount of boxes instead of quadratic.
+ * <p>
+ * The grid is unbounded, cells are hashed into a table sized to the amount of cell entries. It is rebuilt by every
+ * {@link #findPairs()}, which suits boxes that all move each step. Once the arrays have grown to fit, nothing is
+ * allocated. The cell size should be around the size of a typical box, a box covering many cells is entered in
+ * every one of them.
+ */
+
+public class SpatialGrid {
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	private final float invCellSize;
+
+	// Boxes as min and max corners, indexed by the handle add() returned
+	private float[] minX = new float[INITIAL_CAPACITY];
+	private float[] minY = new float[INITIAL_CAPACITY];
+	private float[] maxX = new float[INITIAL_CAPACITY];
+	private float[] maxY = new float[INITIAL_CAPACITY];
+	private int count = 0;
+
+	// Cell entries grouped by hash bucket, the entries of bucket b are bucketStart[b] to bucketStart[b + 1]
+	private int[] bucketStart = new int[1];
+	private int[] bucketCursor = new int[0];
+	private int[] entryBox = new int[INITIAL_CAPACITY];
+	private int[] entryCellX = new int[INITIAL_CAPACITY];
+	private int[] entryCellY = new int[INITIAL_CAPACITY];
+
+	// Overlapping pairs found by the last findPairs(), two handles each with the lower one first
+	private int[] pairs = new int[INITIAL_CAPACITY * 2];
+	private int pairCount = 0;
+
+	/**
+	 * @param cellSize The width and height of a grid cell.
+	 */
+
+	public SpatialGrid(float cellSize) {
+		this.invCellSize = 1f / cellSize;
+	}
+
+	/**
+	 * Remove all boxes, handles returned before are no longer valid.
+	 */
+
+	public void clear() {
+		count = 0;
+		pairCount = 0;
+	}
+
+	/**
+	 * @return The handle of the box, boxes are numbered from 0 in the order they were added.
+	 */
+
+	public int add(float x, float y, float width, float height) {
+		if (count == minX.length) {
+			int capacity = count * 2;
+			minX = Arrays.copyOf(minX, capacity);
+			minY = Arrays.copyOf(minY, capacity);
+			maxX = Arrays.copyOf(maxX, capacity);
+			maxY = Arrays.copyOf(maxY, capacity);
+		}
+
+		set(count, x, y, width, height);
+		return count++;
+	}
+
+	/**
+	 * Add the box a {@code GameObject} currently covers, it isn't followed when the object moves.
+	 */
+
+	public int add(GameObject object) {
+		return add(object.x(), object.y(), object.width(), object.height());
+	}
+
+	/**
+	 * Move or resize a box, takes effect on the next {@link #findPairs()}.
+	 */
+
+	public void set(int box, float x, float y, float width, float height) {
+		minX[box] = x;
+		minY[box] = y;
+		maxX[box] = x + width;
+		maxY[box] = y + height;
+	}
+
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * Find every pair of overlapping boxes, touching edges count as overlapping.
+	 *
+	 * @return The amount of pairs, read them from {@link #pairs()}.
+	 */
+
+	public int findPairs() {
+		pairCount = 0;
+
+		int entries = 0;
+		for (int box = 0; box < count; box++) {
+			entries += (cell(maxX[box]) - cell(minX[box]) + 1) * (cell(maxY[box]) - cell(minY[box]) + 1);
+		}
+
+		int mask = prepareBuckets(entries);
+
+		// Counting sort of the entries by bucket, first the size of every bucket...
+		for (int box = 0; box < count; box++) {
+			int x1 = cell(maxX[box]), y1 = cell(maxY[box]);
+			for (int cy = cell(minY[box]); cy <= y1; cy++) {
+				for (int cx = cell(minX[box]); cx <= x1; cx++) {
+					bucketStart[hash(cx, cy, mask) + 1]++;
+				}
+			}
+		}
+
+		for (int b = 0; b <= mask; b++) {
+			bucketStart[b + 1] += bucketStart[b];
+		}
+		System.arraycopy(bucketStart, 0, bucketCursor, 0, mask + 1);
+
+		// ...then every entry into its place
+		for (int box = 0; box < count; box++) {
+			int x1 = cell(maxX[box]), y1 = cell(maxY[box]);
+			for (int cy = cell(minY[box]); cy <= y1; cy++) {
+				for (int cx = cell(minX[box]); cx <= x1; cx++) {
+					int e = bucketCursor[hash(cx, cy, mask)]++;
+					entryBox[e] = box;
+					entryCellX[e] = cx;
+					entryCellY[e] = cy;
+				}
+			}
+		}
+
+		for (int b = 0; b <= mask; b++) {
+			int end = bucketStart[b + 1];
+
+			for (int i = bucketStart[b]; i < end; i++) {
+				int cx = entryCellX[i], cy = entryCellY[i];
+				int first = entryBox[i];
+
+				for (int j = i + 1; j < end; j++) {
+					// Other cells that hashed into the same bucket
+					if (entryCellX[j] != cx || entryCellY[j] != cy) {
+						continue;
+					}
+
+					int second = entryBox[j];
+					if (!Collision.overlaps(minX[first], minY[first], maxX[first] - minX[first], maxY[first] - minY[first],
+							minX[second], minY[second], maxX[second] - minX[second], maxY[second] - minY[second])) {
+						continue;
+					}
+
+					// Boxes sharing several cells are only reported in the cell holding the corner of their overlap
+					if (cell(Math.max(minX[first], minX[second])) != cx || cell(Math.max(minY[first], minY[second])) != cy) {
+						continue;
+					}
+
+					addPair(Math.min(first, second), Math.max(first, second));
+				}
+			}
+		}
+		return pairCount;
+	}
+
+	/**
+	 * @return The pairs of box handles found by the last {@link #findPairs()}, pair i is at {@code 2 * i} and
+	 * {@code 2 * i + 1}. The array is reused, only the first {@code 2 * pairCount()} values are valid.
+	 */
+
+	public int[] pairs() {
+		return pairs;
+	}
+
+	public int pairCount() {
+		return pairCount;
+	}
+
+	// Sizes the hash table to at least twice the entries and empties it, returns the mask of a bucket index
+	private int prepareBuckets(int entries) {
+		int buckets = Math.max(16, Integer.highestOneBit(Math.max(entries, 1) * 2 - 1) << 1);
+
+		if (bucketCursor.length < buckets) {
+			bucketStart = new int[buckets + 1];
+			bucketCursor = new int[buckets];
+		} else {
+			Arrays.fill(bucketStart, 0, buckets + 1, 0);
+		}
+
+		if (entryBox.length < entries) {
+			int capacity = Math.max(entries, entryBox.length * 2);
+			entryBox = new int[capacity];
+			entryCellX = new int[capacity];
+			entryCellY = new int[capacity];
+		}
+		return buckets - 1;
+	}
+
+	private void addPair(int first, int second) {
+		if (pairCount * 2 == pairs.length) {
+			pairs = Arrays.copyOf(pairs, pairs.length * 2);
+		}
+
+		pairs[pairCount * 2] = first;
+		pairs[pairCount * 2 + 1] = second;
+		pairCount++;
+	}
+
+	private int cell(float coordinate) {
+		return (int) Math.floor(coordinate * invCellSize);
+	}
+
+	private static int hash(int cx, int cy, int mask) {
+		return (cx * 73856093 ^ cy * 19349663) & mask;
+	}
+}
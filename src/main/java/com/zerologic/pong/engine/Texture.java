@@ -5,6 +5,7 @@ import org.lwjgl.BufferUtils;
 import static org.lwjgl.stb.STBImage.*;
 import static org.lwjgl.opengl.GL30.*;
 
+import java.io.IOException;
 import java.nio.*;
 
 /**
@@ -25,6 +26,9 @@ public class Texture {
 
 	int textureID;
 
+	// Key of the texture in the TextureCache, null if it was not loaded through the cache
+	String cacheKey;
+
 	/**
 	 * Create a texture with the supplied parameters, this class takes care of any 
 	 * loading and usage of textures and puts it all in one easy to use class.
@@ -38,29 +42,152 @@ public class Texture {
 	
 	public Texture(String filepath, boolean flipImageOnLoad, int type) {
 		textureID = glGenTextures();
-		glBindTexture(GL_TEXTURE_2D, textureID);
+		GLState.bindTexture(textureID);
 
-		stbi_set_flip_vertically_on_load(flipImageOnLoad);
-		data = stbi_load(filepath, this.wbuffer, this.hbuffer, this.comp, 0);
+		data = decode(filepath);
 
 		width = wbuffer.get(0);
 		height = hbuffer.get(0);
 
+		// stb_image's flip flag is global, the AssetLoader workers decode at the same time
+		if (flipImageOnLoad && data != null) {
+			flipRows(data, width * comp.get(0), height);
+		}
+
 		wbuffer.position(0);
 		hbuffer.position(0);
 
-		glEnable(GL_BLEND);
-		glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
+		upload(type);
+
+		stbi_image_free(data);
+	}
+
+	// Decodes the asset, a mapped file is dropped again once stb_image made its own copy of the pixels
+	private ByteBuffer decode(String filepath) {
+		try {
+			return stbi_load_from_memory(Resources.read(filepath), this.wbuffer, this.hbuffer, this.comp, 0);
+		} catch (IOException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * Flip decoded pixels vertically in place.
+	 *
+	 * @param pixels The pixel data, tightly packed.
+	 * @param stride The length of a row in bytes.
+	 * @param height The amount of rows.
+	 */
+
+	static void flipRows(ByteBuffer pixels, int stride, int height) {
+		byte[] top = new byte[stride];
+		byte[] bottom = new byte[stride];
+
+		for (int row = 0; row < height / 2; row++) {
+			int a = row * stride;
+			int b = (height - 1 - row) * stride;
+
+			pixels.get(a, top);
+			pixels.get(b, bottom);
+			pixels.put(a, bottom);
+			pixels.put(b, top);
+		}
+	}
+
+	/**
+	 * Create a texture from pixels that were already decoded, e.g. an atlas page. The pixels are
+	 * uploaded as they are, top row first, and are not freed by the texture.
+	 *
+	 * @param pixels The pixel data, tightly packed.
+	 * @param width  The width of the texture in pixels.
+	 * @param height The height of the texture in pixels.
+	 * @param type   The type of color channel the pixels use (RGB or RGBA).
+	 */
+
+	public Texture(ByteBuffer pixels, int width, int height, int type) {
+		textureID = glGenTextures();
+		GLState.bindTexture(textureID);
+
+		data = pixels;
+		this.width = width;
+		this.height = height;
+		comp.put(0, type == GL_RGBA ? 4 : 3);
+
+		upload(type);
+	}
+
+	/**
+	 * Create a texture from a pre-decoded {@code Ptex}, its stored mip levels are uploaded as they are.
+	 *
+	 * @param ptex The texture and its mip chain.
+	 */
+
+	public Texture(Ptex ptex) {
+		textureID = glGenTextures();
+		GLState.bindTexture(textureID);
+
+		data = ptex.level(0);
+		width = ptex.width;
+		height = ptex.height;
+		comp.put(0, ptex.channels());
+
+		setParameters(ptex.levelCount());
+
+		// Levels are tightly packed, RGB rows aren't necessarily 4 byte aligned
+		glPixelStorei(GL_UNPACK_ALIGNMENT, 1);
+
+		for (int level = 0; level < ptex.levelCount(); level++) {
+			int w = Math.max(1, width >> level);
+			int h = Math.max(1, height >> level);
+			Metrics.uploaded(ptex.level(level).remaining());
+			glTexImage2D(GL_TEXTURE_2D, level, ptex.format, w, h, 0, ptex.format, GL_UNSIGNED_BYTE, ptex.level(level));
+		}
+
+		glPixelStorei(GL_UNPACK_ALIGNMENT, 4);
+	}
+
+	/**
+	 * Load a texture, pre-decoded {@code .ptex} files are uploaded directly, any other image is decoded first.
+	 *
+	 * @param filepath The asset name or file path of the texture.
+	 * @param flipImageOnLoad Whether or not to flip the image, every mip level of a ptex file is flipped.
+	 * @param type The type of color channel a decoded image will use (RGB or RGBA), ptex files store their own.
+	 */
+
+	public static Texture load(String filepath, boolean flipImageOnLoad, int type) {
+		if (!filepath.endsWith(Ptex.EXTENSION)) {
+			return new Texture(filepath, flipImageOnLoad, type);
+		}
+
+		try {
+			return new Texture(Ptex.load(filepath, flipImageOnLoad));
+		} catch (IOException e) {
+			throw new IllegalStateException("Unable to load " + filepath, e);
+		}
+	}
+
+	private void upload(int type) {
+		setParameters(1);
+
+		Metrics.uploaded((long) width * height * (type == GL_RGBA ? 4 : 3));
+		glTexImage2D(GL_TEXTURE_2D, 0, type, width, height, 0, type, GL_UNSIGNED_BYTE, data);
+		glGenerateMipmap(GL_TEXTURE_2D);
+	}
+
+	// Textures with a stored mip chain are minified through it, the others sample the full size image only
+	private void setParameters(int levelCount) {
+		GLState.setBlend(true);
+		GLState.blendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
 
 		glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_REPEAT);
 		glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_REPEAT);
-		glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_LINEAR);
+		glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, levelCount > 1 ? GL_LINEAR_MIPMAP_LINEAR : GL_LINEAR);
 		glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_LINEAR);
 
-		glTexImage2D(GL_TEXTURE_2D, 0, type, wbuffer.get(), hbuffer.get(), 0, type, GL_UNSIGNED_BYTE, data);
-		glGenerateMipmap(GL_TEXTURE_2D);
-
-		stbi_image_free(data);
+		if (levelCount > 1) {
+			glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAX_LEVEL, levelCount - 1);
+		}
 	}
 
 	/**
@@ -69,6 +196,24 @@ public class Texture {
 	 */
 	
 	public void use() {
-		glBindTexture(GL_TEXTURE_2D, textureID);
+		GLState.bindTexture(textureID);
+	}
+
+	/**
+	 * @return The GL handle of the texture.
+	 */
+
+	public int id() {
+		return textureID;
+	}
+
+	/**
+	 * Deletes the GL texture, textures acquired from the {@code TextureCache} should be released there instead.
+	 */
+
+	public void destroy() {
+		GLState.forgetTexture(textureID);
+		glDeleteTextures(textureID);
+		textureID = 0;
 	}
 }
@@ -0,0 +1,318 @@
+package com.zerologic.pong.engine;
+
+import org.lwjgl.BufferUtils;
+import org.lwjgl.stb.STBRPContext;
+import org.lwjgl.stb.STBRPNode;
+import org.lwjgl.stb.STBRPRect;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.*;
+
+import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.stb.STBImage.*;
+import static org.lwjgl.stb.STBRectPack.*;
+
+/**
+ * The {@code TextureAtlas} class packs many small images into one or a few large textures, so that
+ * everything drawn from the atlas can share a single texture bind. Pages are square, power of two sized
+ * and grow until everything fits or the maximum page size is reached, after which a new page is started.
+ * Images are looked up by their path relative to the directory the atlas was built from, e.g. {@code "menu/logo.png"}.
+ * <p>
+ * Building is split in {@link #pack} which only decodes and packs on the CPU and can run on any thread, and
+ * {@link #upload} which creates the textures on the GL thread.
+ */
+
+public class TextureAtlas {
+
+	private static final String[] IMAGE_EXTENSIONS = { ".png", ".jpg", ".jpeg", ".bmp", ".tga" };
+	private static final int MIN_PAGE_SIZE = 64;
+
+	private final List<Texture> pages = new ArrayList<>();
+	private final Map<String, AtlasRegion> regions = new HashMap<>();
+
+	// A decoded image waiting to be packed
+	private static final class Image {
+		final String name;
+		final ByteBuffer pixels;
+		final int width, height;
+
+		Image(String name, ByteBuffer pixels, int width, int height) {
+			this.name = name;
+			this.pixels = pixels;
+			this.width = width;
+			this.height = height;
+		}
+	}
+
+	/**
+	 * Pages and image positions of an atlas that was packed but not uploaded yet.
+	 */
+	public static final class Packed {
+		private final List<ByteBuffer> pages = new ArrayList<>();
+		private final List<Integer> pageSizes = new ArrayList<>();
+		private final List<Placement> placements = new ArrayList<>();
+
+		private Packed() {}
+
+		public int pageCount() {
+			return pages.size();
+		}
+	}
+
+	private static final class Placement {
+		final String name;
+		final int page;
+		final int x, y, width, height;
+
+		Placement(String name, int page, int x, int y, int width, int height) {
+			this.name = name;
+			this.page = page;
+			this.x = x;
+			this.y = y;
+			this.width = width;
+			this.height = height;
+		}
+	}
+
+	private TextureAtlas() {}
+
+	/**
+	 * Build an atlas of every image in the directory and its subdirectories.
+	 *
+	 * @param directory   The logical name of the directory in the {@code Resources}, e.g. {@code "textures"}.
+	 * @param padding     Empty space around every image in pixels, filled with the edge pixels of the image
+	 *                    so neighbours don't bleed into each other when filtered.
+	 * @param maxPageSize The largest width and height of a page, must be a power of two.
+	 * @return The uploaded atlas.
+	 */
+
+	public static TextureAtlas fromDirectory(String directory, int padding, int maxPageSize) {
+		return upload(packDirectory(directory, padding, maxPageSize));
+	}
+
+	/**
+	 * Decode and pack every image in the directory and its subdirectories without touching GL.
+	 *
+	 * @see #fromDirectory(String, int, int)
+	 */
+
+	public static Packed packDirectory(String directory, int padding, int maxPageSize) {
+		List<String> names = Resources.list(directory);
+		String prefix = Resources.directoryPrefix(directory);
+		Map<String, String> images = new TreeMap<>();
+
+		if (names.isEmpty()) {
+			System.err.println("Unable to read atlas directory " + directory);
+		}
+
+		for (String name : names) {
+			if (isImage(name)) {
+				images.put(name.substring(prefix.length()), name);
+			}
+		}
+		return pack(images, padding, maxPageSize);
+	}
+
+	/**
+	 * Build an atlas of the given images.
+	 *
+	 * @param images      The images to pack, keyed by the name they are looked up with. The values are
+	 *                    read through the {@code Resources}, so they can be asset names or file paths.
+	 * @param padding     Empty space around every image in pixels.
+	 * @param maxPageSize The largest width and height of a page, must be a power of two.
+	 * @return The uploaded atlas.
+	 */
+
+	public static TextureAtlas build(Map<String, String> images, int padding, int maxPageSize) {
+		return upload(pack(images, padding, maxPageSize));
+	}
+
+	/**
+	 * Decode and pack the given images without touching GL.
+	 *
+	 * @see #build(Map, int, int)
+	 */
+
+	public static Packed pack(Map<String, String> images, int padding, int maxPageSize) {
+		Packed packed = new Packed();
+		List<Image> pending = new ArrayList<>();
+
+		IntBuffer w = BufferUtils.createIntBuffer(1);
+		IntBuffer h = BufferUtils.createIntBuffer(1);
+		IntBuffer comp = BufferUtils.createIntBuffer(1);
+
+		for (Map.Entry<String, String> entry : images.entrySet()) {
+			ByteBuffer pixels;
+
+			try {
+				pixels = stbi_load_from_memory(Resources.read(entry.getValue()), w, h, comp, 4);
+			} catch (IOException e) {
+				System.err.println("Unable to read " + entry.getValue() + " into the atlas: " + e.getMessage());
+				continue;
+			}
+
+			if (pixels == null) {
+				System.err.println("Unable to load " + entry.getValue() + " into the atlas: " + stbi_failure_reason());
+				continue;
+			}
+
+			if (w.get(0) + padding * 2 > maxPageSize || h.get(0) + padding * 2 > maxPageSize) {
+				stbi_image_free(pixels);
+				throw new IllegalArgumentException(entry.getValue() + " does not fit on an atlas page of " + maxPageSize + "x" + maxPageSize);
+			}
+
+			pending.add(new Image(entry.getKey(), pixels, w.get(0), h.get(0)));
+		}
+
+		// Big images first, they are the hardest to place
+		pending.sort((a, b) -> Integer.compare(Math.max(b.width, b.height), Math.max(a.width, a.height)));
+
+		List<Image> all = new ArrayList<>(pending);
+
+		while (!pending.isEmpty()) {
+			pending = packPage(packed, pending, padding, maxPageSize);
+		}
+
+		for (Image image : all) {
+			stbi_image_free(image.pixels);
+		}
+		return packed;
+	}
+
+	/**
+	 * Create the textures of a packed atlas, must be called on the GL thread.
+	 */
+
+	public static TextureAtlas upload(Packed packed) {
+		TextureAtlas atlas = new TextureAtlas();
+
+		for (int i = 0; i < packed.pages.size(); i++) {
+			int size = packed.pageSizes.get(i);
+			atlas.pages.add(new Texture(packed.pages.get(i), size, size, GL_RGBA));
+		}
+
+		for (Placement p : packed.placements) {
+			atlas.regions.put(p.name, new AtlasRegion(p.name, atlas.pages.get(p.page), p.x, p.y, p.width, p.height));
+		}
+		return atlas;
+	}
+
+	// Packs as many of the images as possible on a new page and returns the ones that didn't fit
+	private static List<Image> packPage(Packed packed, List<Image> images, int padding, int maxPageSize) {
+		long area = 0;
+		int largest = 0;
+
+		for (Image image : images) {
+			area += (long) (image.width + padding * 2) * (image.height + padding * 2);
+			largest = Math.max(largest, Math.max(image.width, image.height) + padding * 2);
+		}
+
+		// Start at the smallest page that could possibly hold everything and grow until it does
+		int size = MIN_PAGE_SIZE;
+		while (size < maxPageSize && ((long) size * size < area || size < largest)) {
+			size *= 2;
+		}
+
+		STBRPRect.Buffer rects = STBRPRect.calloc(images.size());
+
+		try (STBRPContext context = STBRPContext.calloc()) {
+			while (true) {
+				for (int i = 0; i < images.size(); i++) {
+					Image image = images.get(i);
+					rects.get(i)
+						.id(i)
+						.w((short) (image.width + padding * 2))
+						.h((short) (image.height + padding * 2))
+						.was_packed(false);
+				}
+
+				try (STBRPNode.Buffer nodes = STBRPNode.calloc(size)) {
+					stbrp_init_target(context, size, size, nodes);
+					if (stbrp_pack_rects(context, rects) == 1 || size == maxPageSize) {
+						break;
+					}
+				}
+				size *= 2;
+			}
+
+			ByteBuffer pixels = BufferUtils.createByteBuffer(size * size * 4);
+			List<Image> leftover = new ArrayList<>();
+			int page = packed.pages.size();
+
+			for (int i = 0; i < images.size(); i++) {
+				STBRPRect rect = rects.get(i);
+				Image image = images.get(rect.id());
+
+				if (!rect.was_packed()) {
+					leftover.add(image);
+					continue;
+				}
+
+				int x = (rect.x() & 0xFFFF) + padding;
+				int y = (rect.y() & 0xFFFF) + padding;
+				blit(image, pixels, size, x, y, padding);
+
+				packed.placements.add(new Placement(image.name, page, x, y, image.width, image.height));
+			}
+
+			packed.pages.add(pixels);
+			packed.pageSizes.add(size);
+
+			return leftover;
+		} finally {
+			rects.free();
+		}
+	}
+
+	// Copies the image onto the page and repeats its outermost pixels into the padding around it
+	private static void blit(Image image, ByteBuffer page, int pageSize, int x, int y, int padding) {
+		for (int row = -padding; row < image.height + padding; row++) {
+			int srcRow = Math.min(Math.max(row, 0), image.height - 1);
+
+			for (int col = -padding; col < image.width + padding; col++) {
+				int srcCol = Math.min(Math.max(col, 0), image.width - 1);
+
+				int src = (srcRow * image.width + srcCol) * 4;
+				int dst = ((y + row) * pageSize + (x + col)) * 4;
+				page.putInt(dst, image.pixels.getInt(src));
+			}
+		}
+	}
+
+	private static boolean isImage(String name) {
+		String lower = name.toLowerCase(Locale.ROOT);
+		for (String extension : IMAGE_EXTENSIONS) {
+			if (lower.endsWith(extension)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param name The path of the image relative to the atlas directory, e.g. {@code "menu/logo.png"}.
+	 * @return The region of the image, or null if the atlas doesn't contain it.
+	 */
+
+	public AtlasRegion region(String name) {
+		return regions.get(name);
+	}
+
+	public Collection<AtlasRegion> regions() {
+		return Collections.unmodifiableCollection(regions.values());
+	}
+
+	public List<Texture> pages() {
+		return Collections.unmodifiableList(pages);
+	}
+
+	public void destroy() {
+		for (Texture page : pages) {
+			page.destroy();
+		}
+		pages.clear();
+		regions.clear();
+	}
+}
@@ -0,0 +1,118 @@
+package com.zerologic.pong.engine;
+
+import java.util.HashMap;
+
+/**
+ * The {@code TextureCache} class shares {@code Texture} instances between everything that uses the same image.
+ * An image is decoded and uploaded the first time it is acquired, and its GL texture is deleted once every
+ * user has released it again.
+ */
+
+public class TextureCache {
+
+	private static final class Entry {
+		final Texture texture;
+		int references;
+
+		Entry(Texture texture) {
+			this.texture = texture;
+		}
+	}
+
+	private static final HashMap<String, Entry> entries = new HashMap<>();
+
+	/**
+	 * Get the shared texture for the given image, loading it if no one is using it yet.
+	 * Every call must be paired with a call to {@link #release(Texture)}.
+	 *
+	 * @param filepath        The file path of the texture to be used.
+	 * @param flipImageOnLoad Whether or not to flip the image on load.
+	 * @param type            The type of color channel the texture will use (RGB or RGBA).
+	 * @return The shared {@code Texture}.
+	 */
+
+	public static Texture acquire(String filepath, boolean flipImageOnLoad, int type) {
+		String key = key(filepath, flipImageOnLoad, type);
+		Entry entry = entries.get(key);
+
+		if (entry == null) {
+			Texture texture = Texture.load(filepath, flipImageOnLoad, type);
+			texture.cacheKey = key;
+
+			entry = new Entry(texture);
+			entries.put(key, entry);
+		}
+
+		entry.references++;
+		return entry.texture;
+	}
+
+	/**
+	 * Take another reference to a texture that was acquired from the cache, for a second user of the same instance.
+	 * Every call must be paired with a call to {@link #release(Texture)}. Textures that were not acquired from the
+	 * cache are ignored, like {@code release} ignores them.
+	 *
+	 * @param texture The {@code Texture} to retain.
+	 * @return The same {@code Texture}.
+	 */
+
+	public static Texture retain(Texture texture) {
+		if (texture == null || texture.cacheKey == null) {
+			return texture;
+		}
+
+		Entry entry = entries.get(texture.cacheKey);
+		if (entry == null || entry.texture != texture) {
+			throw new IllegalStateException("Texture " + texture.cacheKey + " was already deleted by the cache");
+		}
+
+		entry.references++;
+		return texture;
+	}
+
+	/**
+	 * Give up one reference to a texture, the texture is deleted when it was the last one.
+	 * Textures that were not acquired from the cache are ignored.
+	 *
+	 * @param texture The {@code Texture} to release.
+	 */
+
+	public static void release(Texture texture) {
+		if (texture == null || texture.cacheKey == null) {
+			return;
+		}
+
+		Entry entry = entries.get(texture.cacheKey);
+		if (entry == null || entry.texture != texture) {
+			return;
+		}
+
+		if (--entry.references == 0) {
+			entries.remove(texture.cacheKey);
+			texture.destroy();
+		}
+	}
+
+	/**
+	 * @return The amount of distinct textures currently loaded through the cache.
+	 */
+
+	public static int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Delete every cached texture regardless of how many users it has left, used when shutting down.
+	 */
+
+	public static void clear() {
+		for (Entry entry : entries.values()) {
+			entry.texture.destroy();
+		}
+		entries.clear();
+	}
+
+	private static String key(String filepath, boolean flipImageOnLoad, int type) {
+		return filepath + '|' + flipImageOnLoad + '|' + type;
+	}
+}
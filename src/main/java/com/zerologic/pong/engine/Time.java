@@ -4,6 +4,11 @@ import static org.lwjgl.glfw.GLFW.*;
 
 /**
  * The {@code Time} utility class.
+ * <p>
+ * Besides the frame delta, {@code Time} drives a fixed timestep for the simulation. Frame time is
+ * collected in an accumulator by {@link #calcTime()} and consumed in ticks of a fixed length through
+ * {@link #nextTick()}, the remainder is exposed as {@link #alpha()} to interpolate between the previous
+ * and current simulation state when rendering.
  * @author Dilan Shabani
  */
 
@@ -13,6 +18,12 @@ public class Time {
 	private static double currentTime = 0;
 	private static float deltaTime;
 
+	// Fixed timestep
+	private static float tickDelta = 1f / 120f;
+	private static int maxTicksPerFrame = 8; // Upper bound of catch-up ticks so a slow frame can't snowball
+	private static double accumulator = 0;
+	private static int ticksThisFrame = 0;
+
 	public static float deltaTimef() {
 		return deltaTime;
 	}
@@ -22,5 +33,62 @@ public class Time {
 		currentTime = glfwGetTime();
 
 		deltaTime = (float) (currentTime - oldTime);
+
+		accumulator += deltaTime;
+		ticksThisFrame = 0;
+	}
+
+	/**
+	 * Consume one tick from the accumulated frame time, meant to be used as the condition of the update loop.
+	 * If the maximum amount of ticks for this frame has been reached the remaining backlog is dropped.
+	 *
+	 * @return Whether another simulation tick should be run this frame.
+	 */
+
+	public static boolean nextTick() {
+		if (accumulator < tickDelta) {
+			return false;
+		}
+
+		if (ticksThisFrame == maxTicksPerFrame) {
+			accumulator %= tickDelta;
+			return false;
+		}
+
+		accumulator -= tickDelta;
+		ticksThisFrame++;
+		return true;
+	}
+
+	/**
+	 * @return How far the current frame is between the last and the next simulation tick, from 0 to 1.
+	 */
+
+	public static float alpha() {
+		return (float) (accumulator / tickDelta);
+	}
+
+	/**
+	 * @return The fixed length of a simulation tick in seconds.
+	 */
+
+	public static float tickDeltaf() {
+		return tickDelta;
+	}
+
+	/**
+	 * @param ticksPerSecond The amount of simulation ticks per second, 120 by default.
+	 */
+
+	public static void setTickRate(float ticksPerSecond) {
+		tickDelta = 1f / ticksPerSecond;
+	}
+
+	/**
+	 * @param ticks The maximum amount of ticks run in a single frame to catch up, 8 by default.
+	 */
+
+	public static void setMaxTicksPerFrame(int ticks) {
+		maxTicksPerFrame = ticks;
 	}
 }
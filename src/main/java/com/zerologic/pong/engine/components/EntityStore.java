@@ -0,0 +1,262 @@
+package com.zerologic.pong.engine.components;
+
+import java.util.Arrays;
+
+/**
+ * The {@code EntityStore} class keeps the state of many entities in packed primitive arrays, one array per field,
+ * instead of one object per entity. Live entities occupy indices 0 to {@link #size()} without gaps, so loops over
+ * all of them like {@link #integrate(float)} or {@link Renderer#draw(EntityStore)} read memory front to back.
+ * <p>
+ * Entities are referred to by handles that stay valid while others are created and removed. A handle holds a slot
+ * and the generation of that slot, a slot is reused after its entity was removed but with the next generation,
+ * so a handle kept past {@link #remove(int)} is detected instead of reaching whatever took the slot.
+ * <p>
+ * Handles have 24 bits for the slot and 8 for the generation. A slot that has gone through all 256 generations
+ * is retired instead of starting over at 0, so no handle ever matches a later entity. A store can create
+ * 2<sup>24</sup> slots in total, which lasts for about four billion entities created and removed.
+ */
+
+public class EntityStore {
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	private static final int SLOT_BITS = 24;
+	private static final int SLOT_MASK = (1 << SLOT_BITS) - 1;
+	private static final int MAX_GENERATION = -1 >>> SLOT_BITS;
+
+	private static EntityStore shared;
+
+	// Entity fields by index, only 0 to count are live
+	float[] x, y, w, h;
+	float[] vx, vy;
+	float[] u0, v0, u1, v1;
+	float[] r, g, b, a;
+	int[] texture;
+	private int[] slotOf; // The slot of the entity at an index
+	int count = 0;
+
+	// Slots by handle, the index of the entity in a slot or -1 while it is free
+	private int[] indexOf;
+	private int[] generation;
+	private int[] freeSlots;
+	private int freeCount = 0;
+	private int slotCount = 0;
+
+	public EntityStore() {
+		this(INITIAL_CAPACITY);
+	}
+
+	public EntityStore(int capacity) {
+		allocate(Math.max(capacity, 1));
+		indexOf = new int[x.length];
+		generation = new int[x.length];
+		freeSlots = new int[x.length];
+	}
+
+	/**
+	 * @return The store every {@code GameObject} created without a store lives in.
+	 */
+
+	public static EntityStore shared() {
+		if (shared == null) {
+			shared = new EntityStore();
+		}
+		return shared;
+	}
+
+	/**
+	 * Create an entity at rest, drawn white with the whole texture.
+	 *
+	 * @return The handle of the entity.
+	 */
+
+	public int create(float x, float y, float width, float height) {
+		if (count == this.x.length) {
+			allocate(count * 2);
+		}
+
+		int slot;
+		if (freeCount > 0) {
+			slot = freeSlots[--freeCount];
+		} else {
+			if (slotCount > SLOT_MASK) {
+				throw new IllegalStateException("EntityStore ran out of slots");
+			}
+			if (slotCount == indexOf.length) {
+				indexOf = Arrays.copyOf(indexOf, slotCount * 2);
+				generation = Arrays.copyOf(generation, slotCount * 2);
+				freeSlots = Arrays.copyOf(freeSlots, slotCount * 2);
+			}
+			slot = slotCount++;
+		}
+
+		int i = count++;
+		indexOf[slot] = i;
+		slotOf[i] = slot;
+
+		this.x[i] = x; this.y[i] = y; w[i] = width; h[i] = height;
+		vx[i] = 0f; vy[i] = 0f;
+		u0[i] = 0f; v0[i] = 1f; u1[i] = 1f; v1[i] = 0f;
+		r[i] = 1f; g[i] = 1f; b[i] = 1f; a[i] = 1f;
+		texture[i] = 0;
+
+		return generation[slot] << SLOT_BITS | slot;
+	}
+
+	/**
+	 * Remove an entity, the last entity moves into its place to keep the arrays packed.
+	 */
+
+	public void remove(int handle) {
+		int slot = handle & SLOT_MASK;
+		int i = index(handle);
+		int last = --count;
+
+		if (i != last) {
+			copy(last, i);
+			slotOf[i] = slotOf[last];
+			indexOf[slotOf[i]] = i;
+		}
+
+		indexOf[slot] = -1;
+
+		// A slot out of generations stays free for good, a new generation 0 would match its first handles again
+		if (generation[slot] < MAX_GENERATION) {
+			generation[slot]++;
+			freeSlots[freeCount++] = slot;
+		}
+	}
+
+	/**
+	 * @return Whether the handle refers to an entity that wasn't removed.
+	 */
+
+	public boolean contains(int handle) {
+		int slot = handle & SLOT_MASK;
+		return slot < slotCount && indexOf[slot] != -1 && generation[slot] == handle >>> SLOT_BITS;
+	}
+
+	/**
+	 * @return The current index of the entity in the field arrays, it changes when other entities are removed.
+	 */
+
+	public int index(int handle) {
+		if (!contains(handle)) {
+			throw new IllegalArgumentException("Entity " + handle + " was removed");
+		}
+		return indexOf[handle & SLOT_MASK];
+	}
+
+	/**
+	 * @return The handle of the entity at an index, from 0 to {@link #size()}.
+	 */
+
+	public int handle(int index) {
+		int slot = slotOf[index];
+		return generation[slot] << SLOT_BITS | slot;
+	}
+
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * Move every entity by its velocity.
+	 *
+	 * @param dt The time step in seconds.
+	 */
+
+	public void integrate(float dt) {
+		for (int i = 0; i < count; i++) {
+			x[i] += vx[i] * dt;
+		}
+
+		for (int i = 0; i < count; i++) {
+			y[i] += vy[i] * dt;
+		}
+	}
+
+	public float x(int handle) { return x[index(handle)]; }
+
+	public float y(int handle) { return y[index(handle)]; }
+
+	public float width(int handle) { return w[index(handle)]; }
+
+	public float height(int handle) { return h[index(handle)]; }
+
+	public float velocityX(int handle) { return vx[index(handle)]; }
+
+	public float velocityY(int handle) { return vy[index(handle)]; }
+
+	public int texture(int handle) { return texture[index(handle)]; }
+
+	public void setPos(int handle, float x, float y) {
+		int i = index(handle);
+		this.x[i] = x;
+		this.y[i] = y;
+	}
+
+	public void addPos(int handle, float x, float y) {
+		int i = index(handle);
+		this.x[i] += x;
+		this.y[i] += y;
+	}
+
+	public void setSize(int handle, float width, float height) {
+		int i = index(handle);
+		w[i] = width;
+		h[i] = height;
+	}
+
+	public void setVelocity(int handle, float vx, float vy) {
+		int i = index(handle);
+		this.vx[i] = vx;
+		this.vy[i] = vy;
+	}
+
+	/**
+	 * @param texture The GL texture handle the entity is drawn with.
+	 */
+
+	public void setTexture(int handle, int texture, float u0, float v0, float u1, float v1) {
+		int i = index(handle);
+		this.texture[i] = texture;
+		this.u0[i] = u0;
+		this.v0[i] = v0;
+		this.u1[i] = u1;
+		this.v1[i] = v1;
+	}
+
+	/**
+	 * The color the texture is multiplied with, only applied when drawn instanced.
+	 */
+
+	public void setColor(int handle, float r, float g, float b, float a) {
+		int i = index(handle);
+		this.r[i] = r;
+		this.g[i] = g;
+		this.b[i] = b;
+		this.a[i] = a;
+	}
+
+	private void copy(int from, int to) {
+		x[to] = x[from]; y[to] = y[from]; w[to] = w[from]; h[to] = h[from];
+		vx[to] = vx[from]; vy[to] = vy[from];
+		u0[to] = u0[from]; v0[to] = v0[from]; u1[to] = u1[from]; v1[to] = v1[from];
+		r[to] = r[from]; g[to] = g[from]; b[to] = b[from]; a[to] = a[from];
+		texture[to] = texture[from];
+	}
+
+	private void allocate(int capacity) {
+		x = grow(x, capacity); y = grow(y, capacity); w = grow(w, capacity); h = grow(h, capacity);
+		vx = grow(vx, capacity); vy = grow(vy, capacity);
+		u0 = grow(u0, capacity); v0 = grow(v0, capacity); u1 = grow(u1, capacity); v1 = grow(v1, capacity);
+		r = grow(r, capacity); g = grow(g, capacity); b = grow(b, capacity); a = grow(a, capacity);
+		texture = texture == null ? new int[capacity] : Arrays.copyOf(texture, capacity);
+		slotOf = slotOf == null ? new int[capacity] : Arrays.copyOf(slotOf, capacity);
+	}
+
+	private static float[] grow(float[] array, int capacity) {
+		return array == null ? new float[capacity] : Arrays.copyOf(array, capacity);
+	}
+}
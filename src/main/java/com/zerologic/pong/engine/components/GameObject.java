@@ -2,25 +2,27 @@ package com.zerologic.pong.engine.components;
 
 import static org.lwjgl.opengl.GL46.*;
 
-import org.joml.Vector2f;
+import com.zerologic.pong.engine.AtlasRegion;
 import com.zerologic.pong.engine.Texture;
+import com.zerologic.pong.engine.TextureCache;
 
 /**
- * 
+ * A {@code GameObject} is a view of one entity in an {@code EntityStore}, its position, size, velocity, texture
+ * coordinates and color live in the store's arrays. Only the texture it holds a reference on is kept here.
+ *
  * @author Dilan Shabani
  */
 
 public class GameObject {
 
-	// Vertex data objects
-	int VAO, VBO, EBO;
+	// Drawn by objects created without a texture
+	private static final String DEFAULT_TEXTURE = "textures/def.png";
 
-	// Size/pos vector
-	public Vector2f pos;
-	public Vector2f size;
+	final EntityStore store;
+	final int handle;
 
-	// Texture loading
-	Texture texture = new Texture("src/main/resources/textures/def.png", false, GL_RGB);
+	// Texture loading, shared with every other object using the same image
+	Texture texture;
 
 	/**
 	 * Create a new {@code GameObject} with the given x and y parameters and given
@@ -34,40 +36,36 @@ public class GameObject {
 	 */
 
 	public GameObject(float x, float y, float width, float height) {
-		pos = new Vector2f(x, y);
-		size = new Vector2f(width, height);
-		
-		// Vertex data
-		float[] data = {
-			// Vertex positions	   // Tex coords
-			0.0f,   0.0f,   0.0f, 1.0f, // Top left
-			size.x, 0.0f,   1.0f, 1.0f, // Top right
-			size.x, size.y, 1.0f, 0.0f, // Bottom right
-			0.0f,   size.y, 0.0f, 0.0f  // Bottom left
-		};
-		
-		int[] indices = {
-			0, 1, 3,
-			1, 2, 3
-		};
-
-		VAO = glGenVertexArrays();
-		glBindVertexArray(VAO);
-
-		VBO = glGenBuffers();
-		glBindBuffer(GL_ARRAY_BUFFER, VBO);
-		glBufferData(GL_ARRAY_BUFFER, data, GL_STATIC_DRAW);
-
-		EBO = glGenBuffers();
-		glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, EBO);
-		glBufferData(GL_ELEMENT_ARRAY_BUFFER, indices, GL_STATIC_DRAW);
-
-		glVertexAttribPointer(0, 4, GL_FLOAT, false, 16, 0);
-		glEnableVertexAttribArray(0);
-
-		glBindVertexArray(0);
-		glBindBuffer(GL_ARRAY_BUFFER, 0);
-		glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, 0);
+		this(EntityStore.shared(), x, y, width, height);
+	}
+
+	/**
+	 * Create a new {@code GameObject} in the given store, objects sharing a store can be drawn together with
+	 * {@link Renderer#draw(EntityStore)}.
+	 */
+
+	public GameObject(EntityStore store, float x, float y, float width, float height) {
+		this(store, x, y, width, height, TextureCache.acquire(DEFAULT_TEXTURE, false, GL_RGB));
+	}
+
+	/**
+	 * Create a new {@code GameObject} drawn with a region of a texture atlas, the default texture isn't loaded
+	 * for it.
+	 *
+	 * @param region The {@code AtlasRegion} to be applied.
+	 */
+
+	public GameObject(EntityStore store, float x, float y, float width, float height, AtlasRegion region) {
+		this(store, x, y, width, height, TextureCache.retain(region.texture));
+		store.setTexture(handle, texture.id(), region.u0, region.v0, region.u1, region.v1);
+	}
+
+	// Takes over a reference on the texture
+	private GameObject(EntityStore store, float x, float y, float width, float height, Texture texture) {
+		this.store = store;
+		this.handle = store.create(x, y, width, height);
+		this.texture = texture;
+		resetTexCoords();
 	}
 
 	/**
@@ -79,54 +77,44 @@ public class GameObject {
 	 */
 	
 	public GameObject(float width, float height) {
-		pos = new Vector2f(0, 0);
-		size = new Vector2f(width, height);
-		
-		// Vertex data
-		float[] data = {
-			// Vertex positions	   // Tex coords
-			0.0f,   0.0f,   0.0f, 1.0f, // Top left
-			size.x, 0.0f,   1.0f, 1.0f, // Top right
-			size.x, size.y, 1.0f, 0.0f, // Bottom right
-			0.0f,   size.y, 0.0f, 0.0f  // Bottom left
-		};
-		
-		int[] indices = {
-			0, 1, 3,
-			1, 2, 3
-		};
-
-		VAO = glGenVertexArrays();
-		glBindVertexArray(VAO);
-
-		VBO = glGenBuffers();
-		glBindBuffer(GL_ARRAY_BUFFER, VBO);
-		glBufferData(GL_ARRAY_BUFFER, data, GL_STATIC_DRAW);
-
-		EBO = glGenBuffers();
-		glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, EBO);
-		glBufferData(GL_ELEMENT_ARRAY_BUFFER, indices, GL_STATIC_DRAW);
-
-		glVertexAttribPointer(0, 4, GL_FLOAT, false, 16, 0);
-		glEnableVertexAttribArray(0);
-
-		glBindVertexArray(0);
-		glBindBuffer(GL_ARRAY_BUFFER, 0);
-		glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, 0);
-	}
-
-	protected void draw() {
-		texture.use();
-		glBindVertexArray(VAO);
-		glDrawElements(GL_TRIANGLES, 6, GL_UNSIGNED_INT, 0);
+		this(0, 0, width, height);
+	}
+
+	/**
+	 * Create a new {@code GameObject} with initial position (0, 0), given size and a texture loaded from the
+	 * given file, the default texture isn't loaded for it.
+	 *
+	 * @param width           The width to give to the {@code GameObject}.
+	 * @param height          The height to give to the {@code GameObject}.
+	 * @param filepath        The file path to the texture to be applied.
+	 * @param flipImageOnLoad Whether or not to flip the image on load.
+	 * @param type            The type of color channel the texture will use (GL_RGB
+	 *                        or GL_RGBA).
+	 */
+
+	public GameObject(float width, float height, String filepath, boolean flipImageOnLoad, int type) {
+		this(EntityStore.shared(), 0, 0, width, height, TextureCache.acquire(filepath, flipImageOnLoad, type));
+	}
+
+	/**
+	 * Create a new {@code GameObject} with initial position (0, 0) and given size, drawn with a region of a
+	 * texture atlas.
+	 *
+	 * @param width  The width to give to the {@code GameObject}.
+	 * @param height The height to give to the {@code GameObject}.
+	 * @param region The {@code AtlasRegion} to be applied.
+	 */
+
+	public GameObject(float width, float height, AtlasRegion region) {
+		this(EntityStore.shared(), 0, 0, width, height, region);
 	}
 
 	public float width() {
-		return this.size.x;
+		return store.width(handle);
 	}
 
 	public float height() {
-		return this.size.y;
+		return store.height(handle);
 	}
 
 	/**
@@ -136,8 +124,7 @@ public class GameObject {
 	 */
 
 	public void setSize(float width, float height) {
-		size.x = width;
-		size.y = height;
+		store.setSize(handle, width, height);
 	}
 
 	/**
@@ -145,7 +132,7 @@ public class GameObject {
 	 */
 
 	public float x() {
-		return this.pos.x;
+		return store.x(handle);
 	}
 
 	/**
@@ -153,7 +140,7 @@ public class GameObject {
 	 */
 
 	public float y() {
-		return this.pos.y;
+		return store.y(handle);
 	}
 
 	/**
@@ -162,7 +149,7 @@ public class GameObject {
 	 */
 
 	public void addToX(float add) {
-		this.pos.x += add;
+		store.addPos(handle, add, 0f);
 	}
 
 	/**
@@ -171,7 +158,7 @@ public class GameObject {
 	 */
 
 	public void addToY(float add) {
-		this.pos.y += add;
+		store.addPos(handle, 0f, add);
 	}
 
 	/**
@@ -182,8 +169,7 @@ public class GameObject {
 	 */
 
 	public void addPos(float x, float y) {
-		this.pos.x += x;
-		this.pos.y += y;
+		store.addPos(handle, x, y);
 	}
 
 	/**
@@ -192,8 +178,32 @@ public class GameObject {
 	 */
 
 	public void setPos(float x, float y) {
-		pos.x = x;
-		pos.y = y;
+		store.setPos(handle, x, y);
+	}
+
+	/**
+	 * @param vx The horizontal speed in units per second, applied by {@link EntityStore#integrate(float)}.
+	 * @param vy The vertical speed in units per second.
+	 */
+
+	public void setVelocity(float vx, float vy) {
+		store.setVelocity(handle, vx, vy);
+	}
+
+	/**
+	 * The color the texture is multiplied with when drawn instanced, white by default.
+	 */
+
+	public void setColor(float r, float g, float b, float a) {
+		store.setColor(handle, r, g, b, a);
+	}
+
+	/**
+	 * @return The handle of the object's entity in its {@code EntityStore}.
+	 */
+
+	public int handle() {
+		return handle;
 	}
 
 	/**
@@ -204,14 +214,52 @@ public class GameObject {
 	 */
 
 	public void setTexture(String filepath, boolean flipImageOnLoad, int type) {
-		texture = new Texture(filepath, flipImageOnLoad, type);
+		Texture previous = texture;
+		texture = TextureCache.acquire(filepath, flipImageOnLoad, type);
+		TextureCache.release(previous);
+		resetTexCoords();
 	}
 
 	/**
-	 * @param texture The {@code Texture} to be applied.
+	 * @param texture The {@code Texture} to be applied. A texture from the {@code TextureCache} gets another
+	 *                reference, the caller keeps its own.
 	 */
 
 	public void setTexture(Texture texture) {
+		if (texture == this.texture) {
+			return;
+		}
+
+		TextureCache.retain(texture);
+		TextureCache.release(this.texture);
 		this.texture = texture;
+		resetTexCoords();
+	}
+
+	/**
+	 * Draw the {@code GameObject} with a region of a texture atlas, objects using regions of the same atlas
+	 * page are drawn together.
+	 *
+	 * @param region The {@code AtlasRegion} to be applied.
+	 */
+
+	public void setTexture(AtlasRegion region) {
+		setTexture(region.texture);
+		store.setTexture(handle, texture.id(), region.u0, region.v0, region.u1, region.v1);
+	}
+
+	private void resetTexCoords() {
+		store.setTexture(handle, texture.id(), 0.0f, 1.0f, 1.0f, 0.0f);
+	}
+
+	/**
+	 * Releases the texture of the {@code GameObject} and removes it from its store, the object can't be used
+	 * afterwards.
+	 */
+
+	public void destroy() {
+		TextureCache.release(texture);
+		texture = null;
+		store.remove(handle);
 	}
 }
\ No newline at end of file
@@ -0,0 +1,203 @@
+package com.zerologic.pong.engine.components;
+
+import com.zerologic.pong.engine.GLResources;
+import com.zerologic.pong.engine.GLState;
+import com.zerologic.pong.engine.Metrics;
+import com.zerologic.pong.engine.ShaderProgram;
+import org.lwjgl.BufferUtils;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+import static org.lwjgl.opengl.GL33.*;
+
+/**
+ * The {@code InstanceBatch} class draws textured quads as instances of one shared unit quad. Instead of four
+ * vertices per quad only one instance record is uploaded (position, size, texture rectangle and color), the quad
+ * is expanded in {@code vertexInstanced.glsl}. Instances are sorted by texture like in the {@code SpriteBatch}
+ * and every texture is one {@code glDrawElementsInstanced} call.
+ */
+
+public class InstanceBatch {
+
+	// x, y, width, height, u0, v0, u1, v1, r, g, b, a
+	private static final int FLOATS_PER_INSTANCE = 12;
+	private static final int BYTES_PER_INSTANCE = FLOATS_PER_INSTANCE * Float.BYTES;
+
+	private final int capacity;
+
+	// CPU side staging, instances are written in submission order and sorted on flush
+	private final float[] instances;
+	private final long[] sortKeys; // texture id in the high bits, submission index in the low bits
+	private final FloatBuffer upload;
+
+	private int instanceCount = 0;
+	private ShaderProgram shader;
+
+	private final int VAO, instanceVBO;
+
+	/**
+	 * Create a new {@code InstanceBatch} that can hold up to {@code capacity} instances before it has to flush.
+	 *
+	 * @param capacity The maximum amount of instances per flush.
+	 */
+
+	public InstanceBatch(int capacity) {
+		this.capacity = capacity;
+		this.instances = new float[capacity * FLOATS_PER_INSTANCE];
+		this.sortKeys = new long[capacity];
+		this.upload = BufferUtils.createFloatBuffer(capacity * FLOATS_PER_INSTANCE);
+
+		// Fetched before binding, the unit quad is created on first use and unbinds its vertex array
+		int quadVBO = GLResources.unitQuadVertices();
+		int quadEBO = GLResources.unitQuadIndices();
+
+		VAO = GLResources.vertexArray(this);
+		GLState.bindVertexArray(VAO);
+
+		// Corners of the shared unit quad, scaled and moved to the instance rectangle in the shader
+		glBindBuffer(GL_ARRAY_BUFFER, quadVBO);
+		glVertexAttribPointer(0, 2, GL_FLOAT, false, 16, 0);
+		glEnableVertexAttribArray(0);
+
+		glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, quadEBO);
+
+		instanceVBO = GLResources.buffer(this);
+		glBindBuffer(GL_ARRAY_BUFFER, instanceVBO);
+		glBufferData(GL_ARRAY_BUFFER, (long) capacity * BYTES_PER_INSTANCE, GL_STREAM_DRAW);
+
+		// Rectangle, texture rectangle and color advance once per instance
+		for (int attribute = 1; attribute <= 3; attribute++) {
+			glEnableVertexAttribArray(attribute);
+			glVertexAttribDivisor(attribute, 1);
+		}
+		pointInstanceAttributes(0);
+
+		GLState.bindVertexArray(0);
+		glBindBuffer(GL_ARRAY_BUFFER, 0);
+		glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, 0);
+	}
+
+	/**
+	 * Set the shader program the batch draws with, it must take the instance attributes like {@code vertexInstanced.glsl}.
+	 * Changing to a different program flushes any pending instances first.
+	 *
+	 * @param shader The {@code ShaderProgram} to draw the instances with.
+	 */
+
+	public void setShader(ShaderProgram shader) {
+		if (this.shader != shader) {
+			flush();
+			this.shader = shader;
+		}
+	}
+
+	/**
+	 * Queue a quad to be drawn on the next flush.
+	 *
+	 * @param texture The GL texture handle to draw the quad with.
+	 * @param x       The x position of the top left corner.
+	 * @param y       The y position of the top left corner.
+	 * @param width   The width of the quad.
+	 * @param height  The height of the quad.
+	 * @param s0      The horizontal texture coordinate of the top left corner.
+	 * @param t0      The vertical texture coordinate of the top left corner.
+	 * @param s1      The horizontal texture coordinate of the bottom right corner.
+	 * @param t1      The vertical texture coordinate of the bottom right corner.
+	 * @param r       The red component the texture is multiplied with.
+	 * @param g       The green component the texture is multiplied with.
+	 * @param b       The blue component the texture is multiplied with.
+	 * @param a       The alpha component the texture is multiplied with.
+	 */
+
+	public void draw(int texture, float x, float y, float width, float height, float s0, float t0, float s1, float t1,
+					 float r, float g, float b, float a) {
+		if (instanceCount == capacity) {
+			flush();
+		}
+
+		int i = instanceCount * FLOATS_PER_INSTANCE;
+
+		instances[i]     = x;  instances[i + 1]  = y;  instances[i + 2]  = width; instances[i + 3]  = height;
+		instances[i + 4] = s0; instances[i + 5]  = t0; instances[i + 6]  = s1;    instances[i + 7]  = t1;
+		instances[i + 8] = r;  instances[i + 9]  = g;  instances[i + 10] = b;     instances[i + 11] = a;
+
+		sortKeys[instanceCount] = ((long) texture << 32) | instanceCount;
+		instanceCount++;
+	}
+
+	/**
+	 * Submit all pending instances with one upload into the orphaned instance buffer.
+	 */
+
+	public void flush() {
+		if (instanceCount == 0) {
+			return;
+		}
+
+		// Sorting keeps the submission order for instances sharing a texture
+		Arrays.sort(sortKeys, 0, instanceCount);
+
+		upload.clear();
+		for (int i = 0; i < instanceCount; i++) {
+			int instance = (int) sortKeys[i];
+			upload.put(instances, instance * FLOATS_PER_INSTANCE, FLOATS_PER_INSTANCE);
+		}
+		upload.flip();
+
+		shader.use();
+		shader.resetModel(); // Instances are already in world space
+
+		GLState.bindVertexArray(VAO);
+		glBindBuffer(GL_ARRAY_BUFFER, instanceVBO);
+		glBufferData(GL_ARRAY_BUFFER, (long) capacity * BYTES_PER_INSTANCE, GL_STREAM_DRAW);
+		Metrics.uploaded((long) upload.remaining() * Float.BYTES);
+		glBufferSubData(GL_ARRAY_BUFFER, 0, upload);
+
+		int runStart = 0;
+		int runTexture = (int) (sortKeys[0] >>> 32);
+		boolean shifted = false;
+
+		for (int i = 1; i <= instanceCount; i++) {
+			int texture = i < instanceCount ? (int) (sortKeys[i] >>> 32) : -1;
+
+			if (texture != runTexture) {
+				// GL 3.3 has no base instance, so the instance attributes are pointed at the start of the run instead
+				if (runStart != 0) {
+					pointInstanceAttributes(runStart);
+					shifted = true;
+				}
+
+				GLState.bindTexture(runTexture);
+				glDrawElementsInstanced(GL_TRIANGLES, GLResources.UNIT_QUAD_INDEX_COUNT, GL_UNSIGNED_INT, 0, i - runStart);
+				Metrics.drawCall();
+
+				runStart = i;
+				runTexture = texture;
+			}
+		}
+
+		if (shifted) {
+			pointInstanceAttributes(0);
+		}
+
+		instanceCount = 0;
+	}
+
+	public int size() {
+		return instanceCount;
+	}
+
+	public void destroy() {
+		GLResources.releaseAll(this);
+	}
+
+	// Expects the VAO and instance buffer to be bound
+	private void pointInstanceAttributes(int firstInstance) {
+		long base = (long) firstInstance * BYTES_PER_INSTANCE;
+
+		glVertexAttribPointer(1, 4, GL_FLOAT, false, BYTES_PER_INSTANCE, base);
+		glVertexAttribPointer(2, 4, GL_FLOAT, false, BYTES_PER_INSTANCE, base + 16);
+		glVertexAttribPointer(3, 4, GL_FLOAT, false, BYTES_PER_INSTANCE, base + 32);
+	}
+}
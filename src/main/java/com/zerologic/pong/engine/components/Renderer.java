@@ -1,6 +1,7 @@
 package com.zerologic.pong.engine.components;
 
 import com.zerologic.pong.Game;
+import com.zerologic.pong.engine.ShaderProgram;
 import com.zerologic.pong.engine.components.gui.input.Button;
 import com.zerologic.pong.engine.components.gui.uitext.*;
 import org.joml.*;
@@ -9,35 +10,129 @@ public class Renderer {
 
 	static Matrix4f model = new Matrix4f();
 
-	public static void draw(Button button) {
-		Game.getShaderProgram().use();
-		model.translation(button.x(), button.y(), 0.0f);
+	// Maximum amount of quads the sprite batch holds before it is forced to flush
+	private static final int BATCH_SIZE = 2048;
+	private static SpriteBatch batch;
 
-		Game.getShaderProgram().setModel(model);
-		Game.getShaderProgram().updateModel();
+	// GameObjects are drawn as instances of one unit quad while an instanced shader is set
+	private static InstanceBatch instances;
+	private static ShaderProgram instancedShader;
 
+	public static void draw(Button button) {
+		flush();
 		button.draw();
 	}
 
+	// GameObjects are only queued here, they are drawn once the batch is flushed
 	public static void draw(GameObject gameObject) {
-		Game.getShaderProgram().use();
-		model.translation(new Vector3f(gameObject.pos, 0.0f));
+		EntityStore store = gameObject.store;
+		queue(store, store.index(gameObject.handle));
+	}
 
-		Game.getShaderProgram().setModel(model);
-		Game.getShaderProgram().updateModel();
+	/**
+	 * Queue every entity of a store in the order they are packed, reading each field array front to back.
+	 */
 
-		gameObject.draw();
+	public static void draw(EntityStore store) {
+		for (int i = 0; i < store.size(); i++) {
+			queue(store, i);
+		}
 	}
 
 	public static void draw(UIText text) {
+		// Anything queued before the text has to be drawn first to keep the draw order
+		flush();
+
 		// Activate text shader program
 		UIFontLoader.getShaderProgram().use();
 
-		model.translation(text.x(), text.y(), 0.0f);
+		model.translation(text.x(), text.y(), 0.0f).scale(text.scale(), text.scale(), 1.0f);
+		UIFontLoader.getShaderProgram().setModel(model);
+		UIFontLoader.getShaderProgram().updateModel();
+
+		text.draw(); // The text shader stays in use, whatever draws next switches through the GLState cache
+	}
+
+	public static void draw(NumericText text) {
+		flush();
+
+		UIFontLoader.getShaderProgram().use();
+
+		model.translation(text.x(), text.y(), 0.0f).scale(text.scale(), text.scale(), 1.0f);
 		UIFontLoader.getShaderProgram().setModel(model);
 		UIFontLoader.getShaderProgram().updateModel();
 
 		text.draw();
-		Game.getShaderProgram().use();
+	}
+
+	/**
+	 * Draw everything that is still queued in the sprite batch, must be called before the buffers are swapped.
+	 */
+
+	public static void flush() {
+		if (batch != null) {
+			batch.flush();
+		}
+
+		if (instances != null) {
+			instances.flush();
+		}
+	}
+
+	/**
+	 * Switch {@code GameObject}s between the sprite batch and instanced drawing. Instanced drawing uploads one
+	 * small record per object instead of four vertices.
+	 *
+	 * @param shader A program taking the instance attributes, like {@code vertexInstanced.glsl} with
+	 *               {@code fragmentInstanced.glsl}, or null to go back to the sprite batch.
+	 */
+
+	public static void setInstancedShader(ShaderProgram shader) {
+		flush();
+		instancedShader = shader;
+	}
+
+	public static boolean isInstanced() {
+		return instancedShader != null;
+	}
+
+	public static void destroy() {
+		if (batch != null) {
+			batch.destroy();
+			batch = null;
+		}
+
+		if (instances != null) {
+			instances.destroy();
+			instances = null;
+		}
+	}
+
+	private static void queue(EntityStore s, int i) {
+		if (instancedShader != null) {
+			InstanceBatch b = instances();
+			b.setShader(instancedShader);
+			b.draw(s.texture[i], s.x[i], s.y[i], s.w[i], s.h[i], s.u0[i], s.v0[i], s.u1[i], s.v1[i], s.r[i], s.g[i], s.b[i], s.a[i]);
+			return;
+		}
+
+		SpriteBatch b = batch();
+		b.setShader(Game.getShaderProgram());
+		b.draw(s.texture[i], s.x[i], s.y[i], s.w[i], s.h[i], s.u0[i], s.v0[i], s.u1[i], s.v1[i]);
+	}
+
+	private static SpriteBatch batch() {
+		// Created lazily as the batch needs a GL context
+		if (batch == null) {
+			batch = new SpriteBatch(BATCH_SIZE);
+		}
+		return batch;
+	}
+
+	private static InstanceBatch instances() {
+		if (instances == null) {
+			instances = new InstanceBatch(BATCH_SIZE);
+		}
+		return instances;
 	}
 }
@@ -0,0 +1,181 @@
+package com.zerologic.pong.engine.components;
+
+import com.zerologic.pong.engine.GLResources;
+import com.zerologic.pong.engine.GLState;
+import com.zerologic.pong.engine.Metrics;
+import com.zerologic.pong.engine.ShaderProgram;
+import org.lwjgl.BufferUtils;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+import static org.lwjgl.opengl.GL33.*;
+
+/**
+ * The {@code SpriteBatch} class collects textured quads in world space and submits them in as few
+ * draw calls as possible. Quads are stored in a CPU side staging array until {@link #flush()} is called,
+ * at which point they are sorted by texture, streamed into a single orphaned vertex buffer and drawn
+ * with one {@code glDrawElements} call per texture.
+ */
+
+public class SpriteBatch {
+
+	private static final int FLOATS_PER_QUAD = 16; // 4 vertices of (x, y, s, t)
+	private static final int BYTES_PER_QUAD = FLOATS_PER_QUAD * Float.BYTES;
+
+	private final int capacity;
+
+	// CPU side staging, quads are written in submission order and sorted on flush
+	private final float[] vertices;
+	private final long[] sortKeys; // texture id in the high bits, submission index in the low bits
+	private final FloatBuffer upload;
+
+	private int quadCount = 0;
+	private ShaderProgram shader;
+
+	private final int VAO, VBO, EBO;
+
+	/**
+	 * Create a new {@code SpriteBatch} that can hold up to {@code capacity} quads before it has to flush.
+	 *
+	 * @param capacity The maximum amount of quads per flush.
+	 */
+
+	public SpriteBatch(int capacity) {
+		this.capacity = capacity;
+		this.vertices = new float[capacity * FLOATS_PER_QUAD];
+		this.sortKeys = new long[capacity];
+		this.upload = BufferUtils.createFloatBuffer(capacity * FLOATS_PER_QUAD);
+
+		// Every quad uses the same index pattern, so the element buffer only has to be built once
+		int[] indices = new int[capacity * 6];
+		for (int i = 0, v = 0; i < indices.length; i += 6, v += 4) {
+			indices[i]     = v;
+			indices[i + 1] = v + 1;
+			indices[i + 2] = v + 3;
+			indices[i + 3] = v + 1;
+			indices[i + 4] = v + 2;
+			indices[i + 5] = v + 3;
+		}
+
+		VAO = GLResources.vertexArray(this);
+		GLState.bindVertexArray(VAO);
+
+		VBO = GLResources.buffer(this);
+		glBindBuffer(GL_ARRAY_BUFFER, VBO);
+		glBufferData(GL_ARRAY_BUFFER, (long) capacity * BYTES_PER_QUAD, GL_STREAM_DRAW);
+
+		EBO = GLResources.buffer(this);
+		glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, EBO);
+		glBufferData(GL_ELEMENT_ARRAY_BUFFER, indices, GL_STATIC_DRAW);
+
+		glVertexAttribPointer(0, 4, GL_FLOAT, false, 16, 0);
+		glEnableVertexAttribArray(0);
+
+		GLState.bindVertexArray(0);
+		glBindBuffer(GL_ARRAY_BUFFER, 0);
+		glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, 0);
+	}
+
+	/**
+	 * Set the shader program the batch draws with. Changing to a different program flushes any pending quads first.
+	 *
+	 * @param shader The {@code ShaderProgram} to draw the quads with.
+	 */
+
+	public void setShader(ShaderProgram shader) {
+		if (this.shader != shader) {
+			flush();
+			this.shader = shader;
+		}
+	}
+
+	/**
+	 * Queue a quad to be drawn on the next flush, the texture coordinates of the top left and bottom right
+	 * corners are given so that sub regions of a texture can be drawn.
+	 *
+	 * @param texture The GL texture handle to draw the quad with.
+	 * @param x       The x position of the top left corner.
+	 * @param y       The y position of the top left corner.
+	 * @param width   The width of the quad.
+	 * @param height  The height of the quad.
+	 * @param s0      The horizontal texture coordinate of the top left corner.
+	 * @param t0      The vertical texture coordinate of the top left corner.
+	 * @param s1      The horizontal texture coordinate of the bottom right corner.
+	 * @param t1      The vertical texture coordinate of the bottom right corner.
+	 */
+
+	public void draw(int texture, float x, float y, float width, float height, float s0, float t0, float s1, float t1) {
+		if (quadCount == capacity) {
+			flush();
+		}
+
+		int i = quadCount * FLOATS_PER_QUAD;
+		float x1 = x + width;
+		float y1 = y + height;
+
+		vertices[i]      = x;  vertices[i + 1]  = y;  vertices[i + 2]  = s0; vertices[i + 3]  = t0; // Top left
+		vertices[i + 4]  = x1; vertices[i + 5]  = y;  vertices[i + 6]  = s1; vertices[i + 7]  = t0; // Top right
+		vertices[i + 8]  = x1; vertices[i + 9]  = y1; vertices[i + 10] = s1; vertices[i + 11] = t1; // Bottom right
+		vertices[i + 12] = x;  vertices[i + 13] = y1; vertices[i + 14] = s0; vertices[i + 15] = t1; // Bottom left
+
+		sortKeys[quadCount] = ((long) texture << 32) | quadCount;
+		quadCount++;
+	}
+
+	/**
+	 * Submit all pending quads. The vertex buffer is orphaned before the upload so the driver never has to
+	 * wait for the previous frame to finish reading from it.
+	 */
+
+	public void flush() {
+		if (quadCount == 0) {
+			return;
+		}
+
+		// Sorting keeps the submission order for quads sharing a texture
+		Arrays.sort(sortKeys, 0, quadCount);
+
+		upload.clear();
+		for (int i = 0; i < quadCount; i++) {
+			int quad = (int) sortKeys[i];
+			upload.put(vertices, quad * FLOATS_PER_QUAD, FLOATS_PER_QUAD);
+		}
+		upload.flip();
+
+		shader.use();
+		shader.resetModel(); // Vertices are already in world space
+
+		GLState.bindVertexArray(VAO);
+		glBindBuffer(GL_ARRAY_BUFFER, VBO);
+		glBufferData(GL_ARRAY_BUFFER, (long) capacity * BYTES_PER_QUAD, GL_STREAM_DRAW);
+		Metrics.uploaded((long) upload.remaining() * Float.BYTES);
+		glBufferSubData(GL_ARRAY_BUFFER, 0, upload);
+
+		int runStart = 0;
+		int runTexture = (int) (sortKeys[0] >>> 32);
+
+		for (int i = 1; i <= quadCount; i++) {
+			int texture = i < quadCount ? (int) (sortKeys[i] >>> 32) : -1;
+
+			if (texture != runTexture) {
+				GLState.bindTexture(runTexture);
+				glDrawElements(GL_TRIANGLES, (i - runStart) * 6, GL_UNSIGNED_INT, (long) runStart * 6 * Integer.BYTES);
+				Metrics.drawCall();
+
+				runStart = i;
+				runTexture = texture;
+			}
+		}
+
+		quadCount = 0;
+	}
+
+	public int size() {
+		return quadCount;
+	}
+
+	public void destroy() {
+		GLResources.releaseAll(this);
+	}
+}
@@ -0,0 +1,107 @@
+package com.zerologic.pong.engine.components.gui.debug;
+
+import com.zerologic.pong.engine.Metrics;
+import com.zerologic.pong.engine.components.Renderer;
+import com.zerologic.pong.engine.components.gui.uitext.UIText;
+
+/**
+ * Shows the p50, p95 and p99 of every {@code Metrics} field as a column of text. The percentiles are refreshed
+ * twice a second rather than every frame, so reading them doesn't show up in the numbers themselves.
+ */
+
+public class MetricsOverlay {
+
+    private static final long REFRESH_NANOS = 500_000_000L;
+    private static final float FONT_SIZE = 20f;
+    private static final float LINE_SPACING = 2f;
+
+    private final Metrics.Field[] fields = Metrics.Field.values();
+    private final UIText[] lines = new UIText[fields.length];
+
+    // Reused for every refresh
+    private final long[] scratch = new long[Metrics.CAPACITY];
+    private final long[] summary = new long[3];
+    private final StringBuilder line = new StringBuilder(96);
+
+    private long lastRefresh = Long.MIN_VALUE / 2;
+    private boolean visible = false;
+
+    public MetricsOverlay(float x, float y) {
+        for (int i = 0; i < fields.length; i++) {
+            lines[i] = new UIText(fields[i].label, FONT_SIZE);
+            lines[i].setColor(1f, 1f, 0f, 1f);
+            lines[i].setPos(x, y + i * (lines[0].height() + LINE_SPACING));
+        }
+    }
+
+    public void draw() {
+        if (!visible) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        if (now - lastRefresh >= REFRESH_NANOS) {
+            refresh();
+            lastRefresh = now;
+        }
+
+        for (UIText text : lines) {
+            Renderer.draw(text);
+        }
+    }
+
+    public void toggle() {
+        visible = !visible;
+    }
+
+    public boolean isVisible() {
+        return visible;
+    }
+
+    public void destroy() {
+        for (UIText text : lines) {
+            text.destroy();
+        }
+    }
+
+    private void refresh() {
+        for (int i = 0; i < fields.length; i++) {
+            Metrics.Field field = fields[i];
+            int frames = Metrics.percentiles(field, scratch, summary);
+
+            line.setLength(0);
+            if (isTime(field)) {
+                line.append(field.label, 0, field.label.length() - 3).append(" ms");
+            } else {
+                line.append(field.label);
+            }
+
+            if (frames > 0) {
+                for (int p = 0; p < summary.length; p++) {
+                    line.append(p == 0 ? "  p50 " : p == 1 ? "  p95 " : "  p99 ");
+                    append(field, summary[p]);
+                }
+            }
+            lines[i].setText(line);
+        }
+    }
+
+    // Times are shown in milliseconds with two decimals, everything else as is
+    private void append(Metrics.Field field, long value) {
+        if (!isTime(field)) {
+            line.append(value);
+            return;
+        }
+
+        long hundredths = (value + 5_000L) / 10_000L;
+        line.append(hundredths / 100).append('.');
+        if (hundredths % 100 < 10) {
+            line.append('0');
+        }
+        line.append(hundredths % 100);
+    }
+
+    private static boolean isTime(Metrics.Field field) {
+        return field.label.endsWith("_ns");
+    }
+}
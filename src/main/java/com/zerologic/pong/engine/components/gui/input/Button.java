@@ -2,16 +2,19 @@ package com.zerologic.pong.engine.components.gui.input;
 
 import static org.lwjgl.opengl.GL33.*;
 
-import static org.lwjgl.glfw.GLFW.*;
-
 import com.zerologic.pong.Game;
+import com.zerologic.pong.engine.GLResources;
+import com.zerologic.pong.engine.GLState;
+import com.zerologic.pong.engine.Metrics;
+import com.zerologic.pong.engine.ShaderProgram;
 import com.zerologic.pong.engine.components.Renderer;
 import com.zerologic.pong.engine.components.gui.uitext.UIText;
 import org.joml.*;
 
 public class Button {
 
-    private int VAO, VBO, EBO;
+    // Vertex array of the border lines, shared by every button
+    private static int borderVAO;
 
     private final UIText text;
     private final Vector4f dim; // xpos, ypos, width, height (xyzw)
@@ -55,58 +58,62 @@ public class Button {
         this.currentColor = color;
 
         this.text.setColor(currentColor);
-
-        init();
     }
 
-    private void init() {
-        float[] data = {
-                // Vertex positions	   // Tex coords
-                0.0f,  0.0f,   0.0f, 1.0f, // Top left
-                dim.z, 0.0f,   1.0f, 1.0f, // Top right
-                dim.z, dim.w,  1.0f, 0.0f, // Bottom right
-                0.0f,  dim.w,  0.0f, 0.0f  // Bottom left
-        };
-
-        int[] indices = {
-                0, 1, 2, 3, 1, 2, 0, 3
-        };
+    // Draw only code, the text is drawn through the renderer first
+    public void draw() {
+        Renderer.draw(text);
 
-        VAO = glGenVertexArrays();
-        glBindVertexArray(VAO);
+        update();
+        if(drawBorder) {
+            ShaderProgram shader = Game.getShaderProgram();
+            shader.use();
+            shader.model.translation(dim.x, dim.y, 0f).scale(dim.z, dim.w, 1f);
+            shader.updateModel();
+
+            GLState.lineWidth(1f);
+            GLState.bindVertexArray(borderLines());
+            glDrawElements(GL_LINES, 8, GL_UNSIGNED_INT, 0);
+            Metrics.drawCall();
+        }
+    }
 
-        VBO = glGenBuffers();
-        glBindBuffer(GL_ARRAY_BUFFER, this.VBO);
-        glBufferData(GL_ARRAY_BUFFER, data, GL_STATIC_DRAW);
+    /**
+     * Releases the text of the button, the button can't be drawn afterwards.
+     */
+    public void destroy() {
+        text.destroy();
+    }
 
-        EBO = glGenBuffers();
-        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, this.EBO);
-        glBufferData(GL_ELEMENT_ARRAY_BUFFER, indices, GL_STATIC_DRAW);
+    // The border is drawn from the shared unit quad with line indices, scaled to the button by the model matrix
+    private static int borderLines() {
+        if (borderVAO == 0) {
+            int[] indices = {
+                    0, 1, 1, 2, 2, 3, 3, 0
+            };
 
-        glVertexAttribPointer(0, 4, GL_FLOAT, false, 16, 0);
-        glEnableVertexAttribArray(0);
+            int quadVBO = GLResources.unitQuadVertices(); // Before binding, creating the quad unbinds its vertex array
 
-        glLineWidth(1f);
+            borderVAO = GLResources.vertexArray(Button.class);
+            GLState.bindVertexArray(borderVAO);
 
-        // Cleanup
-        glBindVertexArray(0);
-        glBindBuffer(GL_ARRAY_BUFFER, 0);
-        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, 0);
-    }
+            glBindBuffer(GL_ARRAY_BUFFER, quadVBO);
+            glVertexAttribPointer(0, 4, GL_FLOAT, false, 16, 0);
+            glEnableVertexAttribArray(0);
 
-    // Use renderer draw calls before doing any raw drawing
-    public void draw() {
-        Renderer.draw(text);
+            glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, GLResources.buffer(Button.class));
+            glBufferData(GL_ELEMENT_ARRAY_BUFFER, indices, GL_STATIC_DRAW);
 
-        update();
-        if(drawBorder) {
-            glBindVertexArray(VAO);
-            glDrawArrays(GL_LINES, 0, 8);
+            // Cleanup
+            GLState.bindVertexArray(0);
+            glBindBuffer(GL_ARRAY_BUFFER, 0);
+            glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, 0);
         }
+        return borderVAO;
     }
 
     private void update() {
-        if(hovered && glfwGetMouseButton(Game.getWindow(), 0) == GLFW_PRESS) {
+        if(hovered && Game.isMouseDown()) {
             if(clicked)
                 return;
 
@@ -114,7 +121,7 @@ public class Button {
             clicked = true;
         }
 
-        if(clicked && hovered && glfwGetMouseButton(Game.getWindow(), 0) == GLFW_RELEASE) {
+        if(clicked && hovered && !Game.isMouseDown()) {
             mouseUpFunc();
             clicked = false;
         }
@@ -0,0 +1,83 @@
+package com.zerologic.pong.engine.components.gui.uitext;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash table of loaded fonts keyed by the bits of their font size, lookups don't box
+ * the key or take a lock. Only used from the GL thread.
+ */
+final class FontTable {
+
+    private int[] keys = new int[16];
+    private LoadedFont[] values = new LoadedFont[16];
+    private int size = 0;
+
+    LoadedFont get(float fontSize) {
+        int key = key(fontSize);
+        int mask = keys.length - 1;
+
+        for (int i = hash(key) & mask; values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return values[i];
+            }
+        }
+        return null;
+    }
+
+    void put(LoadedFont font) {
+        // Keep the table at most half full so probe sequences stay short
+        if ((size + 1) * 2 > keys.length) {
+            grow();
+        }
+
+        int key = key(font.getFontSize());
+        int mask = keys.length - 1;
+        int i = hash(key) & mask;
+
+        while (values[i] != null) {
+            if (keys[i] == key) {
+                values[i] = font;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+
+        keys[i] = key;
+        values[i] = font;
+        size++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        LoadedFont[] oldValues = values;
+
+        keys = new int[oldKeys.length * 2];
+        values = new LoadedFont[oldValues.length * 2];
+        size = 0;
+
+        for (LoadedFont font : oldValues) {
+            if (font != null) {
+                put(font);
+            }
+        }
+    }
+
+    // 0.0f and -0.0f are the same font size
+    private static int key(float fontSize) {
+        return fontSize == 0f ? 0 : Float.floatToIntBits(fontSize);
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
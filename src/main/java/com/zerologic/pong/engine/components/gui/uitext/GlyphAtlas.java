@@ -0,0 +1,329 @@
+package com.zerologic.pong.engine.components.gui.uitext;
+
+import com.zerologic.pong.engine.GLState;
+import com.zerologic.pong.engine.Metrics;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.stb.STBRPContext;
+import org.lwjgl.stb.STBRPNode;
+import org.lwjgl.stb.STBRPRect;
+import org.lwjgl.system.MemoryStack;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import static org.lwjgl.opengl.GL40.*;
+import static org.lwjgl.stb.STBRectPack.*;
+import static org.lwjgl.stb.STBTruetype.*;
+
+/**
+ * A single {@code GL_RED} texture page that glyphs of every font size are rasterized into on demand.
+ * Space on the page is handed out by stb_rect_pack. When a glyph doesn't fit anymore the page is rebuilt
+ * from the most recently used glyphs and the least recently used ones are evicted, which bumps the
+ * {@link #generation()} so text laid out before can tell its texture coordinates are stale.
+ * <p>
+ * Rasterizing and packing only touch the CPU copy of the page, the texture is created and updated in
+ * {@link #bind()}, so glyphs can be laid out without a GL context.
+ */
+
+public class GlyphAtlas {
+
+    private static final int PADDING = 1; // Empty pixels between glyphs so they don't bleed into each other when filtered
+
+    // Signed distance field glyphs, the distance is stored so that the outline of the glyph is at 0.5
+    private static final int SDF_PADDING = 6; // Pixels of distance field around the outline
+    private static final byte SDF_ON_EDGE = (byte) 128;
+    private static final float SDF_DISTANCE_SCALE = 128f / SDF_PADDING;
+
+    /**
+     * A rasterized glyph of one codepoint at one raster size, either as coverage or as a signed distance field.
+     */
+    public static final class Glyph {
+        public final int codepoint;
+        public final float fontSize;
+        public final boolean sdf;
+
+        // Bitmap box relative to the cursor on the baseline, and horizontal advance in pixels
+        public final int xoff, yoff, width, height;
+        public final float advance;
+
+        // Position on the page
+        public float s0, t0, s1, t1;
+        int x, y;
+
+        long lastUsed;
+
+        Glyph(int codepoint, float fontSize, boolean sdf, int xoff, int yoff, int width, int height, float advance) {
+            this.codepoint = codepoint;
+            this.fontSize = fontSize;
+            this.sdf = sdf;
+            this.xoff = xoff;
+            this.yoff = yoff;
+            this.width = width;
+            this.height = height;
+            this.advance = advance;
+        }
+    }
+
+    private final int pageSize;
+    private final ByteBuffer pixels;
+
+    private final STBRPContext packer = STBRPContext.calloc();
+    private final STBRPNode.Buffer nodes;
+    private final STBRPRect.Buffer rect = STBRPRect.calloc(1);
+
+    // Glyphs keyed by raster size bits in the high half and codepoint plus SDF flag in the low half
+    private final HashMap<Long, Glyph> glyphs = new HashMap<>();
+    private final HashMap<Long, LoadedFont> fonts = new HashMap<>(); // Font of every stored glyph, needed to rasterize it again
+
+    private long useClock = 0;
+    private int generation = 0;
+
+    private int textureID = 0;
+
+    // Rows of the page that changed since the last upload
+    private int dirtyMinY = Integer.MAX_VALUE;
+    private int dirtyMaxY = -1;
+
+    /**
+     * @param pageSize The width and height of the page in pixels.
+     */
+    public GlyphAtlas(int pageSize) {
+        this.pageSize = pageSize;
+        this.pixels = BufferUtils.createByteBuffer(pageSize * pageSize);
+        this.nodes = STBRPNode.calloc(pageSize);
+
+        stbrp_init_target(packer, pageSize, pageSize, nodes);
+    }
+
+    /**
+     * Get the glyph of a codepoint at the raster size of the font, rasterizing it onto the page if it isn't there yet.
+     * Glyphs are only valid until the {@link #generation()} changes.
+     */
+    public Glyph glyph(LoadedFont font, int codepoint) {
+        long key = key(font.rasterSize(), codepoint, font.isSdf());
+        Glyph glyph = glyphs.get(key);
+
+        if (glyph == null) {
+            glyph = createGlyph(font, codepoint);
+
+            if (!place(glyph, font)) {
+                evict(glyph, font);
+            }
+
+            glyphs.put(key, glyph);
+            fonts.put(key, font);
+        }
+
+        glyph.lastUsed = ++useClock;
+        return glyph;
+    }
+
+    /**
+     * Mark a glyph as used, like looking it up again with {@link #glyph(LoadedFont, int)}.
+     */
+    public void touch(Glyph glyph) {
+        glyph.lastUsed = ++useClock;
+    }
+
+    /**
+     * Mark glyphs as used, so they are the last to be evicted when the page runs out of space.
+     */
+    public void touch(Glyph[] used, int count) {
+        long stamp = ++useClock;
+        for (int i = 0; i < count; i++) {
+            used[i].lastUsed = stamp;
+        }
+    }
+
+    /**
+     * Upload the parts of the page that changed and bind it to {@code GL_TEXTURE_2D}, must be called on the GL thread.
+     */
+    public void bind() {
+        if (textureID == 0) {
+            textureID = glGenTextures();
+            GLState.bindTexture(textureID);
+
+            glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_BORDER);
+            glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_BORDER);
+            glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_LINEAR);
+            glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_LINEAR);
+
+            glPixelStorei(GL_UNPACK_ALIGNMENT, 1);
+            Metrics.uploaded((long) pageSize * pageSize);
+            glTexImage2D(GL_TEXTURE_2D, 0, GL_RED, pageSize, pageSize, 0, GL_RED, GL_UNSIGNED_BYTE, pixels);
+
+            dirtyMinY = Integer.MAX_VALUE;
+            dirtyMaxY = -1;
+            return;
+        }
+
+        GLState.bindTexture(textureID);
+
+        if (dirtyMaxY >= dirtyMinY) {
+            // Only the band of rows that changed is uploaded
+            ByteBuffer rows = pixels.duplicate();
+            rows.position(dirtyMinY * pageSize);
+            rows.limit((dirtyMaxY + 1) * pageSize);
+
+            glPixelStorei(GL_UNPACK_ALIGNMENT, 1);
+            Metrics.uploaded(rows.remaining());
+            glTexSubImage2D(GL_TEXTURE_2D, 0, 0, dirtyMinY, pageSize, dirtyMaxY - dirtyMinY + 1, GL_RED, GL_UNSIGNED_BYTE, rows);
+
+            dirtyMinY = Integer.MAX_VALUE;
+            dirtyMaxY = -1;
+        }
+    }
+
+    /**
+     * @return A counter that changes whenever glyphs were moved or evicted.
+     */
+    public int generation() {
+        return generation;
+    }
+
+    public int getTextureID() {
+        return textureID;
+    }
+
+    public int pageSize() {
+        return pageSize;
+    }
+
+    public int glyphCount() {
+        return glyphs.size();
+    }
+
+    public void destroy() {
+        if (textureID != 0) {
+            GLState.forgetTexture(textureID);
+            glDeleteTextures(textureID);
+            textureID = 0;
+        }
+
+        glyphs.clear();
+        fonts.clear();
+
+        packer.free();
+        nodes.free();
+        rect.free();
+    }
+
+    private Glyph createGlyph(LoadedFont font, int codepoint) {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            IntBuffer x0 = stack.mallocInt(1);
+            IntBuffer y0 = stack.mallocInt(1);
+            IntBuffer x1 = stack.mallocInt(1);
+            IntBuffer y1 = stack.mallocInt(1);
+            IntBuffer advance = stack.mallocInt(1);
+            IntBuffer bearing = stack.mallocInt(1);
+
+            stbtt_GetCodepointBitmapBox(font.info(), codepoint, font.scale(), font.scale(), x0, y0, x1, y1);
+            stbtt_GetCodepointHMetrics(font.info(), codepoint, advance, bearing);
+
+            int padding = 0;
+
+            // Distance fields extend past the outline, the same way stbtt_GetCodepointSDF grows the box
+            if (font.isSdf() && x0.get(0) != x1.get(0) && y0.get(0) != y1.get(0)) {
+                padding = SDF_PADDING;
+            }
+
+            return new Glyph(codepoint, font.rasterSize(), font.isSdf(), x0.get(0) - padding, y0.get(0) - padding,
+                x1.get(0) - x0.get(0) + padding * 2, y1.get(0) - y0.get(0) + padding * 2, advance.get(0) * font.scale());
+        }
+    }
+
+    // Finds space for the glyph and rasterizes it there, false if the page is full
+    private boolean place(Glyph glyph, LoadedFont font) {
+        if (glyph.width == 0 || glyph.height == 0) {
+            return true; // Nothing to draw, e.g. a space
+        }
+
+        rect.get(0)
+            .w((short) (glyph.width + PADDING))
+            .h((short) (glyph.height + PADDING))
+            .was_packed(false);
+
+        if (stbrp_pack_rects(packer, rect) == 0) {
+            return false;
+        }
+
+        glyph.x = rect.get(0).x() & 0xFFFF;
+        glyph.y = rect.get(0).y() & 0xFFFF;
+
+        glyph.s0 = (float) glyph.x / pageSize;
+        glyph.t0 = (float) glyph.y / pageSize;
+        glyph.s1 = (float) (glyph.x + glyph.width) / pageSize;
+        glyph.t1 = (float) (glyph.y + glyph.height) / pageSize;
+
+        if (glyph.sdf) {
+            copySdf(glyph, font);
+        } else {
+            ByteBuffer target = pixels.duplicate();
+            target.position(glyph.y * pageSize + glyph.x);
+            stbtt_MakeCodepointBitmap(font.info(), target, glyph.width, glyph.height, pageSize, font.scale(), font.scale(), glyph.codepoint);
+        }
+
+        dirtyMinY = Math.min(dirtyMinY, glyph.y);
+        dirtyMaxY = Math.max(dirtyMaxY, glyph.y + glyph.height - 1);
+        return true;
+    }
+
+    private void copySdf(Glyph glyph, LoadedFont font) {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            IntBuffer w = stack.mallocInt(1);
+            IntBuffer h = stack.mallocInt(1);
+            IntBuffer xoff = stack.mallocInt(1);
+            IntBuffer yoff = stack.mallocInt(1);
+
+            ByteBuffer sdf = stbtt_GetCodepointSDF(font.info(), font.scale(), glyph.codepoint, SDF_PADDING, SDF_ON_EDGE, SDF_DISTANCE_SCALE, w, h, xoff, yoff);
+            if (sdf == null) {
+                return;
+            }
+
+            int width = Math.min(w.get(0), glyph.width);
+            int height = Math.min(h.get(0), glyph.height);
+
+            for (int row = 0; row < height; row++) {
+                for (int col = 0; col < width; col++) {
+                    pixels.put((glyph.y + row) * pageSize + glyph.x + col, sdf.get(row * w.get(0) + col));
+                }
+            }
+
+            stbtt_FreeSDF(sdf);
+        }
+    }
+
+    // Rebuilds the page with the new glyph and as many of the most recently used glyphs as still fit
+    private void evict(Glyph incoming, LoadedFont incomingFont) {
+        ArrayList<Glyph> survivors = new ArrayList<>(glyphs.values());
+        survivors.sort((a, b) -> Long.compare(b.lastUsed, a.lastUsed));
+
+        stbrp_init_target(packer, pageSize, pageSize, nodes);
+        for (int i = 0; i < pixels.capacity(); i++) {
+            pixels.put(i, (byte) 0);
+        }
+
+        if (!place(incoming, incomingFont)) {
+            System.err.println("Glyph " + incoming.codepoint + " at size " + incoming.fontSize + " does not fit on the glyph atlas");
+        }
+
+        for (Glyph glyph : survivors) {
+            long key = key(glyph.fontSize, glyph.codepoint, glyph.sdf);
+
+            if (!place(glyph, fonts.get(key))) {
+                glyphs.remove(key);
+                fonts.remove(key);
+            }
+        }
+
+        dirtyMinY = 0;
+        dirtyMaxY = pageSize - 1;
+        generation++;
+    }
+
+    private static long key(float fontSize, int codepoint, boolean sdf) {
+        return ((long) Float.floatToIntBits(fontSize) << 32) | (sdf ? 0x80000000L : 0L) | (codepoint & 0x7FFFFFFFL);
+    }
+}
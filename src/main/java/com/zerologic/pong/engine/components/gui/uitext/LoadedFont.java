@@ -1,29 +1,31 @@
 package com.zerologic.pong.engine.components.gui.uitext;
 
-import org.lwjgl.stb.STBTTBakedChar;
-import org.lwjgl.system.StructBuffer;
+import org.lwjgl.stb.STBTTFontinfo;
 
-import static org.lwjgl.stb.STBTTBakedChar.*;
-import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 public class LoadedFont {
 
-    // The LoadedFont class is simply instantiated with a created bitmap, so that any bitmaps
-    // that are needed are created and stored in the FontLoader class.
+    // The LoadedFont class holds the metrics of a font at one size, the glyphs themselves are
+    // rasterized on demand into the GlyphAtlas that is shared by every size. Signed distance field
+    // fonts of every size share the glyphs rasterized at one raster size and are scaled when drawn.
 
     private final String path;
     private final float fontSize;
+    private final float rasterSize;
+    private final boolean sdf;
 
-    private STBTTBakedChar.Buffer cdata = STBTTBakedChar.create(143);
+    private STBTTFontinfo info;
+    private GlyphAtlas atlas;
+
+    // ASCII glyphs looked up before, spares the atlas lookup and its boxed key
+    private final GlyphAtlas.Glyph[] asciiGlyphs = new GlyphAtlas.Glyph[128];
+    private int asciiGeneration;
 
     private int ascent;
     private int descent;
     private int lineGap;
     private float scale;
-    private int bmpSize;
-    private int textureID;
-
-    private ByteBuffer bitmap;
 
     /**
      * Creates a new {@code LoadedFont} with {@code UIFontLoader} for use
@@ -32,36 +34,74 @@ public class LoadedFont {
      * @param fontSize The font's size.
      */
     public LoadedFont(String path, float fontSize) {
+        this(path, fontSize, fontSize, false);
+    }
+
+    /**
+     * @param path The filepath to the font.
+     * @param fontSize The font's size.
+     * @param rasterSize The pixel height the glyphs are rasterized at.
+     * @param sdf Whether the glyphs are rasterized as signed distance fields.
+     */
+    public LoadedFont(String path, float fontSize, float rasterSize, boolean sdf) {
         this.path = path;
         this.fontSize = fontSize;
+        this.rasterSize = rasterSize;
+        this.sdf = sdf;
     }
 
-    public void setData(STBTTBakedChar.Buffer cdata, int ascent, int descent, int lineGap, float scale, int bmpSize, ByteBuffer bitmap, int texture) {
-
-        // Foreach loop adds each STBTTBakedChar into the new buffer without any reference to the source buffer
-        for(STBTTBakedChar c : cdata) {
-            this.cdata.put(c);
-        }
-        this.cdata.flip();
-
+    public void setData(STBTTFontinfo info, GlyphAtlas atlas, int ascent, int descent, int lineGap, float scale) {
+        this.info = info;
+        this.atlas = atlas;
         this.ascent = ascent;
         this.descent = descent;
         this.lineGap = lineGap;
         this.scale = scale;
-        this.bmpSize = bmpSize;
-        this.bitmap = bitmap;
-        this.textureID = texture;
     }
 
-    public STBTTBakedChar.Buffer getCharData() { return this.cdata; }
+    /**
+     * @return The glyph of the codepoint at this font's size, rasterized into the atlas if needed.
+     */
+    public GlyphAtlas.Glyph glyph(int codepoint) {
+        if (codepoint >= asciiGlyphs.length) {
+            return atlas.glyph(this, codepoint);
+        }
+
+        // Glyphs are only valid within one generation of the atlas
+        if (asciiGeneration != atlas.generation()) {
+            Arrays.fill(asciiGlyphs, null);
+            asciiGeneration = atlas.generation();
+        }
+
+        GlyphAtlas.Glyph glyph = asciiGlyphs[codepoint];
+        if (glyph != null) {
+            atlas.touch(glyph);
+            return glyph;
+        }
+
+        glyph = atlas.glyph(this, codepoint);
+        if (asciiGeneration == atlas.generation()) {
+            asciiGlyphs[codepoint] = glyph; // Not kept if placing it moved the other glyphs
+        }
+        return glyph;
+    }
+
+    public GlyphAtlas getAtlas() { return this.atlas; }
+
+    public STBTTFontinfo info() { return this.info; }
+
+    public String getPath() { return this.path; }
 
     public float getFontSize() { return this.fontSize; }
 
-    public int getBmpSize() { return this.bmpSize; }
+    public float rasterSize() { return this.rasterSize; }
+
+    public boolean isSdf() { return this.sdf; }
 
-    public ByteBuffer getBitmap() { return this.bitmap; }
+    // Scale from the size the glyphs are rasterized at to the size they are drawn at, 1 unless the font is a distance field
+    public float displayScale() { return this.fontSize / this.rasterSize; }
 
-    public int getTextureID() { return this.textureID; }
+    public int getTextureID() { return this.atlas.getTextureID(); }
 
     public int ascent() { return this.ascent; }
 
@@ -0,0 +1,287 @@
+package com.zerologic.pong.engine.components.gui.uitext;
+
+import com.zerologic.pong.engine.GLResources;
+import com.zerologic.pong.engine.GLState;
+import com.zerologic.pong.engine.Metrics;
+import org.joml.Vector2f;
+import org.joml.Vector4f;
+import org.lwjgl.BufferUtils;
+
+import static org.lwjgl.opengl.GL40.*;
+
+import java.nio.FloatBuffer;
+
+/**
+ * A text that only shows an integer, for scores, timers and FPS counters that are set every frame. The quads of the
+ * digits 0-9 and the minus sign are baked once, setting a value formats it into a preallocated char buffer and only
+ * the quads of the digits that changed are written into the vertex buffer, so nothing is allocated per frame.
+ * <p>
+ * Digits are laid out in cells of the widest digit's advance, a digit changing never moves its neighbours.
+ */
+public class NumericText {
+
+    private static final String CHARACTERS = "0123456789-";
+    private static final int MINUS = 10;
+
+    private static final int FLOATS_PER_QUAD = 16;
+
+    private final int capacity; // Maximum amount of characters, the minus sign included
+
+    // Pre-baked quad of every character relative to the left of its cell, 4 vertices of (x, y, s, t)
+    private final float[] baked = new float[CHARACTERS.length() * FLOATS_PER_QUAD];
+    private final GlyphAtlas.Glyph[] bakedGlyphs = new GlyphAtlas.Glyph[CHARACTERS.length()];
+    private float cellWidth;
+    private float bakedHeight;
+
+    private final char[] chars; // Characters currently in the vertex buffer, as indices into CHARACTERS
+    private final char[] next; // Formatting scratch
+    private final GlyphAtlas.Glyph[] glyphs; // Glyph of every character in the buffer
+    private int length = 0;
+
+    private final FloatBuffer upload;
+
+    private int value;
+    private boolean hasValue = false;
+    private int atlasGeneration;
+
+    private final Vector2f pos;
+    private final Vector4f color = new Vector4f(0.0f, 0.0f, 0.0f, 1.0f); // RGBA, black by default
+
+    private final float fontSize;
+    private final LoadedFont font;
+
+    private final int VAO, VBO;
+
+    /**
+     * @param capacity The maximum amount of characters shown, the minus sign included. Values that need more
+     *                 characters show their lowest digits.
+     * @param fontSize The font size of the digits.
+     */
+    public NumericText(int capacity, float fontSize) {
+        this(capacity, fontSize, 0f, 0f);
+    }
+
+    public NumericText(int capacity, float fontSize, float x, float y) {
+        this.capacity = capacity;
+        this.fontSize = fontSize;
+        this.pos = new Vector2f(x, y);
+
+        this.chars = new char[capacity];
+        this.next = new char[capacity];
+        this.glyphs = new GlyphAtlas.Glyph[capacity];
+        this.upload = BufferUtils.createFloatBuffer(capacity * FLOATS_PER_QUAD);
+
+        font = UIFontLoader.getFontBySize(fontSize);
+        bake();
+
+        VAO = GLResources.vertexArray(this);
+        GLState.bindVertexArray(VAO);
+
+        VBO = GLResources.buffer(this);
+        glBindBuffer(GL_ARRAY_BUFFER, VBO);
+        glBufferData(GL_ARRAY_BUFFER, (long) capacity * FLOATS_PER_QUAD * Float.BYTES, GL_DYNAMIC_DRAW);
+
+        glVertexAttribPointer(0, 4, GL_FLOAT, false, 16, 0);
+        glEnableVertexAttribArray(0);
+
+        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, UIText.sharedIndices(capacity));
+
+        GLState.bindVertexArray(0);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, 0);
+
+        setValue(0);
+    }
+
+    /**
+     * Show a value, only the digits that differ from the shown ones are uploaded.
+     */
+    public void setValue(int value) {
+        if (hasValue && value == this.value) {
+            return;
+        }
+        this.value = value;
+        hasValue = true;
+
+        int count = format(value, next);
+
+        // Rebaking moves every glyph, all quads are rewritten
+        if (atlasGeneration != font.getAtlas().generation()) {
+            bake();
+            length = 0;
+        }
+
+        int first = count;
+        int last = -1;
+
+        for (int i = 0; i < count; i++) {
+            if (i >= length || chars[i] != next[i]) {
+                chars[i] = next[i];
+                glyphs[i] = bakedGlyphs[next[i]];
+                first = Math.min(first, i);
+                last = i;
+            }
+        }
+        length = count;
+
+        if (last >= 0) {
+            write(first, last);
+        }
+    }
+
+    // Draw only code, must set shader in renderer class!
+    public void draw() {
+        if (atlasGeneration != font.getAtlas().generation()) {
+            bake();
+            write(0, length - 1);
+        }
+
+        if (length == 0) {
+            return;
+        }
+
+        UIFontLoader.getShaderProgram().use();
+        UIFontLoader.getShaderProgram().setVector4f(UIFontLoader.getColorUniform(), this.color);
+
+        font.getAtlas().touch(glyphs, length);
+        font.getAtlas().bind();
+
+        GLState.bindVertexArray(VAO);
+        glDrawElements(GL_TRIANGLES, length * 6, GL_UNSIGNED_INT, 0);
+        Metrics.drawCall();
+    }
+
+    /**
+     * Give the vertex array and buffer back to {@code GLResources}, the text can't be drawn afterwards.
+     */
+    public void destroy() {
+        GLResources.releaseAll(this);
+    }
+
+    // Writes the characters of the value into out from the right and moves them to the front, returns the count
+    private int format(int value, char[] out) {
+        long remaining = Math.abs((long) value); // Math.abs of Integer.MIN_VALUE would stay negative
+        int digitCapacity = value < 0 ? capacity - 1 : capacity;
+
+        int i = capacity;
+        do {
+            out[--i] = (char) (remaining % 10);
+            remaining /= 10;
+        } while (remaining != 0 && capacity - i < digitCapacity);
+
+        if (value < 0) {
+            out[--i] = MINUS;
+        }
+
+        int count = capacity - i;
+        System.arraycopy(out, i, out, 0, count);
+        return count;
+    }
+
+    // Uploads the quads of the characters from first to last in one range of the vertex buffer
+    private void write(int first, int last) {
+        upload.clear();
+        for (int i = first; i <= last; i++) {
+            float cellX = i * cellWidth;
+            int q = chars[i] * FLOATS_PER_QUAD;
+
+            for (int v = 0; v < FLOATS_PER_QUAD; v += 4) {
+                upload.put(baked[q + v] + cellX).put(baked[q + v + 1]).put(baked[q + v + 2]).put(baked[q + v + 3]);
+            }
+        }
+        upload.flip();
+
+        glBindBuffer(GL_ARRAY_BUFFER, VBO);
+        Metrics.uploaded((long) upload.remaining() * Float.BYTES);
+        glBufferSubData(GL_ARRAY_BUFFER, (long) first * FLOATS_PER_QUAD * Float.BYTES, upload);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+    }
+
+    private void bake() {
+        GlyphAtlas atlas = font.getAtlas();
+        int generation;
+
+        // Making room for a glyph moves the ones baked before it, bake again until none moved
+        do {
+            generation = atlas.generation();
+            bakeGlyphs();
+        } while (atlas.generation() != generation);
+
+        atlasGeneration = generation;
+
+        for (int i = 0; i < length; i++) {
+            glyphs[i] = bakedGlyphs[chars[i]];
+        }
+    }
+
+    private void bakeGlyphs() {
+        float baseline = font.ascent() * font.scale();
+        cellWidth = 0f;
+        bakedHeight = 0f;
+
+        for (int c = 0; c < CHARACTERS.length(); c++) {
+            cellWidth = Math.max(cellWidth, font.glyph(CHARACTERS.charAt(c)).advance);
+        }
+
+        for (int c = 0; c < CHARACTERS.length(); c++) {
+            GlyphAtlas.Glyph glyph = font.glyph(CHARACTERS.charAt(c));
+            bakedGlyphs[c] = glyph;
+
+            // Centered in the cell and snapped to whole pixels like UIText.layout
+            float x0 = (float) Math.floor((cellWidth - glyph.advance) / 2f + glyph.xoff + 0.5f);
+            float y0 = (float) Math.floor(baseline + glyph.yoff + 0.5f);
+            float x1 = x0 + glyph.width;
+            float y1 = y0 + glyph.height;
+
+            bakedHeight = Math.max(bakedHeight, y1);
+
+            int q = c * FLOATS_PER_QUAD;
+            baked[q]      = x0; baked[q + 1]  = y0; baked[q + 2]  = glyph.s0; baked[q + 3]  = glyph.t0; // Top left
+            baked[q + 4]  = x1; baked[q + 5]  = y0; baked[q + 6]  = glyph.s1; baked[q + 7]  = glyph.t0; // Top right
+            baked[q + 8]  = x1; baked[q + 9]  = y1; baked[q + 10] = glyph.s1; baked[q + 11] = glyph.t1; // Bottom right
+            baked[q + 12] = x0; baked[q + 13] = y1; baked[q + 14] = glyph.s0; baked[q + 15] = glyph.t1; // Bottom left
+        }
+    }
+
+    public void setColor(float r, float g, float b, float a) {
+        color.set(r, g, b, a);
+    }
+
+    public void setColor(Vector4f color) {
+        this.color.set(color);
+    }
+
+    public void setPos(float x, float y) {
+        pos.x = x;
+        pos.y = y;
+    }
+
+    public int value() {
+        return value;
+    }
+
+    public float x() {
+        return pos.x;
+    }
+
+    public float y() {
+        return pos.y;
+    }
+
+    // Width and height as drawn, after the display scale of the font
+    public float width() {
+        return length * cellWidth * scale();
+    }
+
+    public float height() {
+        return bakedHeight * scale();
+    }
+
+    public float scale() {
+        return font.displayScale();
+    }
+
+    public float fontSize() {
+        return fontSize;
+    }
+}
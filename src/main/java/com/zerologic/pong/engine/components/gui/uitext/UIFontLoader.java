@@ -1,5 +1,6 @@
 package com.zerologic.pong.engine.components.gui.uitext;
 
+import com.zerologic.pong.engine.Resources;
 import com.zerologic.pong.engine.ShaderProgram;
 import org.lwjgl.BufferUtils;
 import org.lwjgl.stb.*;
@@ -8,43 +9,72 @@ import static org.lwjgl.stb.STBTruetype.*;
 
 import java.io.*;
 import java.nio.*;
-import java.util.Vector;
-
-import static org.lwjgl.opengl.GL40.*;
 
 public class UIFontLoader {
 
-    private static int bmpSize = 1024;
+    private static int bmpSize = 1024; // Width and height of the glyph atlas page shared by all font sizes
 
     private static STBTTFontinfo fontInfo;
-    private static ByteBuffer data; // The buffer to store the font data
-    private final static ByteBuffer bitmap = BufferUtils.createByteBuffer(bmpSize*bmpSize); // The buffer that has the actual drawn image of the bitmap
-    private final static STBTTBakedChar.Buffer cdata = STBTTBakedChar.calloc(143); // Character data from the font, is 96 because the standard range of chars is from 32-96, 143 for special chars
+    private static boolean fontValid = false;
+    private static ByteBuffer data; // The buffer to store the font data, must stay alive as long as fontInfo is used
+    private static GlyphAtlas atlas;
 
     private final static String defaultFont = "C:/Windows/Fonts/Arial.ttf"; // To be defined by programmer, this is a font that the loader defaults to if there is not fonts found at the given parameter
     private static String fontPath;
 
     private static ShaderProgram txtShader;
+    private static int colorUniform = -1; // Handle of the text color, resolved once per shader
+
+    // Signed distance field mode, all sizes are drawn from glyphs rasterized at sdfRasterSize
+    private static boolean sdf = false;
+    private static float sdfRasterSize = 48f;
+
+    private static final FontTable loadedFonts = new FontTable();
+
+    /**
+     * A font file that was read, and whose glyphs were rasterized ahead of time, off the GL thread.
+     * Made current with {@link #init(ShaderProgram, PreparedFont)}.
+     */
+    public static final class PreparedFont {
+        private final String path;
+        private final ByteBuffer data;
+        private final STBTTFontinfo info;
+        private final boolean valid;
+        private final GlyphAtlas atlas;
+        private final LoadedFont[] fonts;
+
+        private PreparedFont(String path, ByteBuffer data, STBTTFontinfo info, boolean valid, GlyphAtlas atlas, LoadedFont[] fonts) {
+            this.path = path;
+            this.data = data;
+            this.info = info;
+            this.valid = valid;
+            this.atlas = atlas;
+            this.fonts = fonts;
+        }
+    }
 
-    private static final Vector<LoadedFont> loadedFonts = new Vector<>();
+    /**
+     * Creates a font of the given size from the font file. Only the metrics are read here, glyphs are
+     * rasterized into the shared atlas once they are first laid out, so this doesn't create any GL objects.
+     * The returned font is not registered with the loader.
+     *
+     * @param size The pixel height of the font.
+     * @return The font, or null if the font data could not be read.
+     */
+    public static LoadedFont loadFont(float size) {
+        return loadFont(fontInfo, fontValid, atlas, fontPath, size);
+    }
 
-    // Returns true on successful font load
-    protected static void generateBitmap(float size) {
+    private static LoadedFont loadFont(STBTTFontinfo fontInfo, boolean fontValid, GlyphAtlas atlas, String fontPath, float size) {
         float fontHeight = size;
 
-        if(checkFontExists(fontHeight)) {
-            return;
-        }
-
         if(fontHeight < 0) {
             fontHeight = 0;
             System.err.println("Font size cannot be below 0!");
         }
 
-        fontInfo = STBTTFontinfo.create();
-
-        if(!stbtt_InitFont(fontInfo, data)) {
-            return;
+        if(!fontValid) {
+            return null;
         }
 
         IntBuffer bAscent = BufferUtils.createIntBuffer(1);
@@ -57,67 +87,108 @@ public class UIFontLoader {
         int descent = bDescent.get();
         int lineGap = bLineGap.get();
 
-        float scale = stbtt_ScaleForPixelHeight(fontInfo, fontHeight);
-
-        // Bakes the font to a texture of size bmpSize*bmpSize with the first character as codepoint 32
-        stbtt_BakeFontBitmap(data, fontHeight, bitmap, bmpSize, bmpSize, 32, cdata);
-
-        // bitmap texture handle
-        int texture = glGenTextures();
-        glBindTexture(GL_TEXTURE_2D, texture);
-
-        LoadedFont font = new LoadedFont(fontPath, fontHeight);
-        font.setData(cdata, ascent, descent, lineGap, scale, bmpSize, bitmap, texture);
-        loadedFonts.add(font);
-
-        glPixelStorei(GL_UNPACK_ALIGNMENT, GL_TRUE); // Disable 4-byte pixel alignment
-
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_BORDER);
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_BORDER);
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_LINEAR);
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_LINEAR);
-
-        glTexImage2D(GL_TEXTURE_2D, 0, GL_RED, font.getBmpSize(), font.getBmpSize(), 0, GL_RED, GL_UNSIGNED_BYTE, getFontBySize(fontHeight).getBitmap());
-        glGenerateMipmap(GL_TEXTURE_2D);
-
-        glBindTexture(GL_TEXTURE_2D, 0);
+        float rasterSize = sdf ? sdfRasterSize : fontHeight;
+        float scale = stbtt_ScaleForPixelHeight(fontInfo, rasterSize);
 
-        // Clear/free all data from UIFontLoader when there's no need to hold any data.
-        cdata.clear();
-        data.clear();
-        bitmap.clear();
+        LoadedFont font = new LoadedFont(fontPath, fontHeight, rasterSize, sdf);
+        font.setData(fontInfo, atlas, ascent, descent, lineGap, scale);
+        return font;
+    }
 
+    /**
+     * Makes a font available through {@link #getFontBySize(float)}.
+     */
+    public static void register(LoadedFont font) {
+        loadedFonts.put(font);
     }
 
-    // Defaults to 1024 if no size is specified.. no guarantee the font fits on the bitmap!
+    // Defaults to a 1024x1024 atlas if no size is specified
     public static void init(ShaderProgram shader, String filepath) {
-        txtShader = shader;
-        data = fileToBytebuffer(filepath);
-        fontPath = filepath;
+        init(bmpSize, shader, filepath);
     }
 
     public static void init(int bitmapSize, ShaderProgram shader, String filepath) {
         bmpSize = bitmapSize;
-        txtShader = shader;
+        setShaderProgram(shader);
         data = fileToBytebuffer(filepath);
         fontPath = filepath;
+
+        fontInfo = STBTTFontinfo.create();
+        fontValid = stbtt_InitFont(fontInfo, data);
+
+        if(!fontValid) {
+            System.err.println("Unable to read font " + filepath);
+        }
+
+        atlas = new GlyphAtlas(bmpSize);
+        loadedFonts.clear();
     }
 
-    static ByteBuffer fileToBytebuffer(String fpath) {
-        File file = new File(fpath);
+    /**
+     * Read a font and rasterize the printable ASCII glyphs of the given sizes into a new atlas. Nothing here
+     * needs a GL context, so it can run on a worker thread, e.g. through the {@code AssetLoader}.
+     * The font is rasterized in the mode (coverage or signed distance field) set when this is called.
+     *
+     * @param bitmapSize The width and height of the glyph atlas page.
+     * @param filepath   The path of the font file.
+     * @param sizes      The font sizes to rasterize ahead of time.
+     */
+    public static PreparedFont prepare(int bitmapSize, String filepath, float... sizes) {
+        ByteBuffer data = fileToBytebuffer(filepath);
+
+        STBTTFontinfo info = STBTTFontinfo.create();
+        boolean valid = stbtt_InitFont(info, data);
+
+        if(!valid) {
+            System.err.println("Unable to read font " + filepath);
+        }
 
-        if(!file.exists()) {
-            System.err.println("Error loading font. Loading default font (" + defaultFont + ")");
-            file = new File(defaultFont);
+        GlyphAtlas atlas = new GlyphAtlas(bitmapSize);
+        LoadedFont[] fonts = new LoadedFont[valid ? sizes.length : 0];
+
+        for (int i = 0; i < fonts.length; i++) {
+            fonts[i] = loadFont(info, true, atlas, filepath, sizes[i]);
+
+            for (int cp = 32; cp < 127; cp++) {
+                fonts[i].glyph(cp);
+            }
         }
 
-        try (InputStream stream = new FileInputStream(file)) {
-            ByteBuffer buf = BufferUtils.createByteBuffer((int) file.length());
+        return new PreparedFont(filepath, data, info, valid, atlas, fonts);
+    }
+
+    /**
+     * Make a font prepared by {@link #prepare(int, String, float...)} current, the fonts it was prepared
+     * with are registered. Must be called on the GL thread.
+     */
+    public static void init(ShaderProgram shader, PreparedFont font) {
+        bmpSize = font.atlas.pageSize();
+        setShaderProgram(shader);
+        data = font.data;
+        fontPath = font.path;
+        fontInfo = font.info;
+        fontValid = font.valid;
+        atlas = font.atlas;
 
-            buf.put(stream.readAllBytes());
-            buf.flip();
+        loadedFonts.clear();
+        for (LoadedFont loaded : font.fonts) {
+            register(loaded);
+        }
+    }
+
+    // Fonts are served by the Resources, files on disk are mapped instead of read so they aren't held on the
+    // heap and in a native copy at the same time
+    static ByteBuffer fileToBytebuffer(String fpath) {
+        try {
+            return Resources.read(fpath);
+        } catch (FileNotFoundException e) {
+            System.err.println("Error loading font. Loading default font (" + defaultFont + ")");
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
 
-            return buf;
+        try {
+            return Resources.read(defaultFont);
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -125,35 +196,63 @@ public class UIFontLoader {
     }
 
     public static void destroy() {
-        fontInfo.free();
-        stbtt_FreeBitmap(bitmap);
-
-        cdata.clear();
+        atlas.destroy();
         data.clear();
-        bitmap.clear();
 
         loadedFonts.clear();
     }
 
+    public static GlyphAtlas getAtlas() { return atlas; }
+
     public static ShaderProgram getShaderProgram() { return txtShader; }
 
+    // Handle of the "color" uniform of the text shader, texts set their color through it every draw
+    public static int getColorUniform() { return colorUniform; }
+
+    private static void setShaderProgram(ShaderProgram shader) {
+        txtShader = shader;
+        colorUniform = shader != null ? shader.uniform("color") : -1;
+    }
+
+    /**
+     * Switch to signed distance field text. Glyphs are rasterized once as distance fields at the given size and
+     * every font size is drawn from them, so changing the size of a text doesn't rasterize anything.
+     * Must be called before any text is created, and before {@code prepare()} for prepared fonts to be
+     * rasterized as distance fields. The text shader must sample the distance field, e.g. {@code textSdfFrag.glsl}.
+     *
+     * @param rasterSize The pixel height the distance fields are rasterized at.
+     */
+    public static void enableSdf(float rasterSize) {
+        sdf = true;
+        sdfRasterSize = rasterSize;
+        loadedFonts.clear();
+    }
+
+    public static boolean isSdf() { return sdf; }
+
+    /**
+     * Get the font of the given size, generating it first if no font of that size has been loaded.
+     *
+     * @throws IllegalStateException If the font data can't be read.
+     */
     public static LoadedFont getFontBySize(float size) {
-        for(LoadedFont f : loadedFonts) {
-            if (size == f.getFontSize()) {
-                return f;
+        LoadedFont font = loadedFonts.get(size);
+
+        if(font == null) {
+            font = loadFont(size);
+
+            if(font == null) {
+                throw new IllegalStateException("Unable to load font " + fontPath + " at size " + size);
             }
+            register(font);
         }
-        System.out.println("Unable to find font, generating new one!");
-        generateBitmap(size);
-        return loadedFonts.lastElement();
+        return font;
     }
 
-    private static boolean checkFontExists(float size) {
-        for (LoadedFont f : loadedFonts) {
-            if(f.getFontSize() == size){
-                return true;
-            }
-        }
-        return false;
+    /**
+     * @return The loaded font of the given size, or null if no font of that size has been loaded.
+     */
+    public static LoadedFont findFont(float size) {
+        return loadedFonts.get(size);
     }
 }
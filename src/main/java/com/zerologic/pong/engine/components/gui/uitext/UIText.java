@@ -1,37 +1,41 @@
 package com.zerologic.pong.engine.components.gui.uitext;
 
+import com.zerologic.pong.engine.GLResources;
+import com.zerologic.pong.engine.GLState;
+import com.zerologic.pong.engine.Metrics;
 import org.joml.Vector2f;
 import org.joml.Vector4f;
-import org.lwjgl.stb.*;
 import org.lwjgl.BufferUtils;
 
 import static org.lwjgl.opengl.GL40.*;
 
-import static org.lwjgl.stb.STBTruetype.*;
-
 import java.nio.FloatBuffer;
-import java.util.Vector;
 
 public class UIText {
 
-    private String text;
+    private CharSequence text; // Either a string that was set or the text's own copy in chars
+    private StringBuilder chars; // Reused for text set as a character sequence, created when first needed
 
-    private final FloatBuffer x = BufferUtils.createFloatBuffer(1);
-    private final FloatBuffer y = BufferUtils.createFloatBuffer(1);
-    private final Vector<STBTTAlignedQuad> bakedChars = new Vector<>();
+    private FloatBuffer vertices = BufferUtils.createFloatBuffer(0); // Quads of all glyphs, 4 vertices of (x, y, s, t) each
+    private GlyphAtlas.Glyph[] glyphs = new GlyphAtlas.Glyph[0]; // Atlas glyphs the quads were built from
+    private int glyphCount;
+    private int atlasGeneration; // Atlas generation the quads were built with, the texture coordinates are stale once it changes
 
     private Vector2f pos; // X and Y of the actual quad
-    private Vector2f size; // Width and height of the object
-    private Vector4f color; // RGBA
+    private final Vector2f size = new Vector2f(); // Width and height of the laid out glyphs, before the display scale of the font
+    private final Vector4f color = new Vector4f(0.0f, 0.0f, 0.0f, 1.0f); // RGBA, black by default
+
+    private int number; // Last value given to setText(int), valid while showsNumber is set
+    private boolean showsNumber = false;
 
     private float fontSize;
+    private LoadedFont font; // Resolved in init() whenever the font size changes
 
-    private int VAO, VBO, EBO;
+    private int VAO, VBO;
 
-    static int[] indices = {
-        0, 1, 3,
-        1, 2, 3
-    };
+    // Element buffer shared by all text objects, grown to fit the longest string
+    private static int EBO;
+    private static int indexedQuads = 0;
 
     public UIText(int text, float fontSize) {
         this(Integer.toString(text), fontSize, 0f, 0f);
@@ -58,133 +62,195 @@ public class UIText {
         this.text = text;
         this.fontSize = fontSize;
         this.pos = new Vector2f(x, y); // Set pos
-        this.color = new Vector4f(0.0f, 0.0f, 0.0f, 1.0f); // Set font color to black by default
 
         init(); // Call initialize method from constructor
     }
 
     public void init() {
-        // Activate the shader and set the color
-        UIFontLoader.getShaderProgram().use();
-        UIFontLoader.getShaderProgram().setVector4f(this.color, "color");
-
-        // Initialize fontloader with given size and clear buffers and baked chars, reset origin
-        UIFontLoader.generateBitmap(fontSize); // Load a font bitmap with the desired size
-
-        bakedChars.clear();
-        resetPosBuffers();
+        // Load a font bitmap with the desired size if there is none yet
+        font = UIFontLoader.getFontBySize(fontSize);
 
-        // Create baked chars for each of the characters in the string
-        for (int i = 0; i < text.length(); i++) {
+        ensureVertexCapacity(text.length());
+        glyphCount = layout(font, text, vertices, glyphs, size);
+        atlasGeneration = font.getAtlas().generation();
 
-            // If newline, set virtual cursor accordingly
-            if (text.charAt(i)=='\n') {
-                // Virtual cursor positions
-                // float vCursorX = this.x.get(0);
-                float vCursorY = this.y.get(0);
-                this.putPosBuffer(0f, getNewlineYOff(vCursorY)); // Put these 2 values in the x and y pos buffers respectively
-                continue;
-            }
+        // The vertex array is only created once, later changes just replace the buffer contents
+        if (VAO == 0) {
+            VAO = GLResources.vertexArray(this);
+            GLState.bindVertexArray(VAO);
 
-            STBTTAlignedQuad q = STBTTAlignedQuad.create();
-            stbtt_GetBakedQuad(UIFontLoader.getFontBySize(fontSize).getCharData(), UIFontLoader.getFontBySize(fontSize).getBmpSize(), UIFontLoader.getFontBySize(fontSize).getBmpSize(), text.charAt(i) - 32, x, y, q, true);
+            VBO = GLResources.buffer(this);
+            glBindBuffer(GL_ARRAY_BUFFER, VBO);
 
-            bakedChars.add(q);
+            glVertexAttribPointer(0, 4, GL_FLOAT, false, 16, 0);
+            glEnableVertexAttribArray(0);
+        } else {
+            GLState.bindVertexArray(VAO);
+            glBindBuffer(GL_ARRAY_BUFFER, VBO);
         }
 
-        // Get the true width and height of the text object
-        float maxWidth = 0f;
-        float maxHeight = 0f;
-        for (STBTTAlignedQuad q : bakedChars) {
-            if (q.x1() > maxWidth) {
-                maxWidth = q.x1();
-            }
+        Metrics.uploaded((long) vertices.remaining() * Float.BYTES);
+        glBufferData(GL_ARRAY_BUFFER, vertices, GL_STATIC_DRAW);
+        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, sharedIndices(glyphCount));
 
-            if (q.y1() > maxHeight) {
-                maxHeight = q.y1();
-            }
+        GLState.bindVertexArray(0);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, 0);
+    }
+
+    // Draw only code, must set shader in renderer class!
+    public void draw() {
+        // Glyphs were moved around on the atlas since the text was laid out
+        if (atlasGeneration != font.getAtlas().generation()) {
+            init();
         }
 
-        size = new Vector2f(maxWidth, maxHeight);
+        if (glyphCount == 0) {
+            return;
+        }
 
-        VAO = glGenVertexArrays();
-        glBindVertexArray(VAO);
+        // Activate text shader to change color of each text object
+        UIFontLoader.getShaderProgram().use();
+        UIFontLoader.getShaderProgram().setVector4f(UIFontLoader.getColorUniform(), this.color);
 
-        VBO = glGenBuffers();
-        glBindBuffer(GL_ARRAY_BUFFER, VBO);
+        font.getAtlas().touch(glyphs, glyphCount);
+        font.getAtlas().bind();
 
-        EBO = glGenBuffers();
-        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, EBO);
-        glBufferData(GL_ELEMENT_ARRAY_BUFFER, indices, GL_STATIC_DRAW);
+        GLState.bindVertexArray(VAO);
+        glDrawElements(GL_TRIANGLES, glyphCount * 6, GL_UNSIGNED_INT, 0);
+        Metrics.drawCall();
+    }
 
-        glVertexAttribPointer(0, 4, GL_FLOAT, false, 16, 0);
-        glEnableVertexAttribArray(0);
+    /**
+     * Give the vertex array and buffer of the text back to {@code GLResources}, the text can't be drawn afterwards.
+     */
+    public void destroy() {
+        GLResources.releaseAll(this);
+        VAO = VBO = 0;
+    }
 
-        glBindVertexArray(0);
-        glBindBuffer(GL_ARRAY_BUFFER, 0);
-        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, 0);
+    /**
+     * Bake the quads of every character in the string into the given buffer, relative to the origin of the text.
+     * Glyphs missing from the font's atlas are rasterized into it, but no GL state is touched.
+     *
+     * @param font     The font to lay the text out with.
+     * @param text     The characters to lay out.
+     * @param vertices The buffer the quads are written to, 4 vertices of (x, y, s, t) per glyph. Flipped when done.
+     * @param glyphs   Receives the atlas glyph of every quad, must hold at least as many elements as the text has characters.
+     * @param size     Receives the width and height of the laid out text.
+     * @return The amount of glyphs written to the buffer.
+     */
+    public static int layout(LoadedFont font, CharSequence text, FloatBuffer vertices, GlyphAtlas.Glyph[] glyphs, Vector2f size) {
+        GlyphAtlas atlas = font.getAtlas();
+        int generation;
+        int count;
+
+        // Making room for a glyph moves the ones placed before it, lay out again until none moved
+        do {
+            generation = atlas.generation();
+            count = layoutGlyphs(font, text, vertices, glyphs, size);
+        } while (atlas.generation() != generation);
+        return count;
     }
 
-    // Draw only code, must set shader in renderer class!
-    public void draw() {
-        // Activate text shader to change color of each text object
-        UIFontLoader.getShaderProgram().use();
-        UIFontLoader.getShaderProgram().setVector4f(this.color, "color");
+    private static int layoutGlyphs(LoadedFont font, CharSequence text, FloatBuffer vertices, GlyphAtlas.Glyph[] glyphs, Vector2f size) {
+        vertices.clear();
 
-        glBindTexture(GL_TEXTURE_2D, UIFontLoader.getFontBySize(fontSize).getTextureID());
-        glBindVertexArray(VAO);
+        // Virtual cursor on the baseline
+        float cursorX = 0f;
+        float cursorY = font.ascent() * font.scale();
 
-        for(STBTTAlignedQuad q : bakedChars) {
-            float[] charVerts = {
-                q.x0(), q.y0(),   q.s0(), q.t0(), // Top left
-                q.x1(), q.y0(),   q.s1(), q.t0(), // Top right
-                q.x1(), q.y1(),   q.s1(), q.t1(), // Bottom right
-                q.x0(), q.y1(),   q.s0(), q.t1()  // Bottom left
-            };
+        int count = 0;
+        float maxWidth = 0f;
+        float maxHeight = 0f;
 
-            glBindBuffer(GL_ARRAY_BUFFER, VBO);
-            glBufferData(GL_ARRAY_BUFFER, charVerts, GL_DYNAMIC_DRAW);
+        for (int i = 0; i < text.length(); i++) {
+
+            // If newline, set virtual cursor accordingly
+            if (text.charAt(i)=='\n') {
+                cursorX = 0f;
+                cursorY = getNewlineYOff(font, cursorY);
+                continue;
+            }
+
+            GlyphAtlas.Glyph glyph = font.glyph(text.charAt(i));
+
+            // Snap the quad to whole pixels like stbtt_GetBakedQuad does
+            float x0 = (float) Math.floor(cursorX + glyph.xoff + 0.5f);
+            float y0 = (float) Math.floor(cursorY + glyph.yoff + 0.5f);
+            float x1 = x0 + glyph.width;
+            float y1 = y0 + glyph.height;
+
+            cursorX += glyph.advance;
+
+            if (glyph.width == 0 || glyph.height == 0) {
+                continue; // Nothing to draw, e.g. a space
+            }
+
+            // Get the true width and height of the text object
+            if (x1 > maxWidth) {
+                maxWidth = x1;
+            }
+
+            if (y1 > maxHeight) {
+                maxHeight = y1;
+            }
 
-            glDrawElements(GL_TRIANGLES, indices.length, GL_UNSIGNED_INT, 0);
+            vertices.put(x0).put(y0).put(glyph.s0).put(glyph.t0); // Top left
+            vertices.put(x1).put(y0).put(glyph.s1).put(glyph.t0); // Top right
+            vertices.put(x1).put(y1).put(glyph.s1).put(glyph.t1); // Bottom right
+            vertices.put(x0).put(y1).put(glyph.s0).put(glyph.t1); // Bottom left
+            glyphs[count++] = glyph;
         }
+        vertices.flip();
+
+        size.set(maxWidth, maxHeight);
+        return count;
     }
 
-    private float getNewlineYOff(float vCursorY) {
-        return vCursorY + (((UIFontLoader.getFontBySize(fontSize).ascent() - UIFontLoader.getFontBySize(fontSize).descent() + UIFontLoader.getFontBySize(fontSize).lineGap()) * UIFontLoader.getFontBySize(fontSize).scale()));
+    private void ensureVertexCapacity(int count) {
+        if (vertices.capacity() < count * 16) {
+            vertices = BufferUtils.createFloatBuffer(count * 16);
+            glyphs = new GlyphAtlas.Glyph[count];
+        }
     }
 
-    private void resetPosBuffers() {
-        x.position(0);
-        x.put(0);
-        x.flip();
+    // Returns an element buffer shared by every text object holding the indices for at least the given amount of quads
+    static int sharedIndices(int quads) {
+        if (EBO == 0) {
+            EBO = GLResources.buffer(UIText.class);
+        }
 
-        y.position(0);
-        y.put(UIFontLoader.getFontBySize(fontSize).ascent() * UIFontLoader.getFontBySize(fontSize).scale());
-        y.flip();
-    }
+        if (quads > indexedQuads) {
+            indexedQuads = Math.max(quads, indexedQuads * 2);
+
+            int[] indices = new int[indexedQuads * 6];
+            for (int i = 0, v = 0; i < indices.length; i += 6, v += 4) {
+                indices[i]     = v;
+                indices[i + 1] = v + 1;
+                indices[i + 2] = v + 3;
+                indices[i + 3] = v + 1;
+                indices[i + 4] = v + 2;
+                indices[i + 5] = v + 3;
+            }
 
-    private void putPosBuffer(float xpos, float ypos) {
-        x.position(0);
-        x.put(xpos);
-        x.flip();
+            glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, EBO);
+            glBufferData(GL_ELEMENT_ARRAY_BUFFER, indices, GL_STATIC_DRAW);
+        }
+        return EBO;
+    }
 
-        y.position(0);
-        y.put(ypos);
-        y.flip();
+    private static float getNewlineYOff(LoadedFont font, float vCursorY) {
+        return vCursorY + (((font.ascent() - font.descent() + font.lineGap()) * font.scale()));
     }
 
+    // The color is copied into the text's own vector, so setting it never allocates
     public void setColor(float r, float g, float b, float a) {
-        // Check if color isn't the same as current so no need to create a new vec every time
-        if (!(color.x == r && color.y == g && color.z == b && color.w == a))
-        {
-            color = new Vector4f(r, g, b, a);
-        }
+        color.set(r, g, b, a);
     }
 
     public void setColor(Vector4f color) {
-        if(!color.equals(this.color)) {
-            this.color = color;
-        }
+        this.color.set(color);
     }
 
     public float x() {
@@ -196,11 +262,18 @@ public class UIText {
     }
 
     public float width() {
-        return size.x;
+        return size.x * font.displayScale();
     }
 
     public float height() {
-        return size.y;
+        return size.y * font.displayScale();
+    }
+
+    /**
+     * @return The scale the text has to be drawn with, anything but 1 only for distance field fonts.
+     */
+    public float scale() {
+        return font.displayScale();
     }
 
     public Vector2f pos() {
@@ -213,22 +286,49 @@ public class UIText {
     }
 
     public String text() {
-        return this.text;
+        return this.text.toString();
     }
 
     // Now extremely efficient/lightweight in most cases
     public void setText(String value) {
-        if (!value.equals(text)) {
+        if (!value.contentEquals(text)) {
             text = value;
+            showsNumber = false;
             init();
         }
     }
 
+    // The characters are copied into a buffer the text keeps, so a builder refilled every refresh doesn't allocate
+    public void setText(CharSequence value) {
+        if (CharSequence.compare(value, text) == 0) {
+            return;
+        }
+
+        if (chars == null) {
+            chars = new StringBuilder(value.length());
+        }
+        chars.setLength(0);
+        chars.append(value);
+
+        text = chars;
+        showsNumber = false;
+        init();
+    }
+
+    // The number is only formatted when it changed, setting the same score every frame doesn't allocate
     public void setText(int value) {
-        if (!Integer.toString(value).equals(text)) {
-            text = Integer.toString(value);
+        if (showsNumber && value == number) {
+            return;
+        }
+
+        String formatted = Integer.toString(value);
+        if (!formatted.contentEquals(text)) {
+            text = formatted;
             init();
         }
+
+        number = value;
+        showsNumber = true;
     }
 
     public float fontSize() {
@@ -236,7 +336,17 @@ public class UIText {
     }
 
     public void setFontSize(float value) {
+        if (value == fontSize) {
+            return;
+        }
         fontSize = value;
-        init();
+
+        // Distance field fonts share their glyphs between all sizes, only the scale the text is drawn with changes
+        LoadedFont next = UIFontLoader.getFontBySize(value);
+        if (next.isSdf() && font.isSdf() && next.rasterSize() == font.rasterSize()) {
+            font = next;
+        } else {
+            init();
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,10 @@
+#version 330 core
+out vec4 FragColor;
+
+in vec2 ourTexCoord;
+in vec4 ourColor;
+uniform sampler2D aTexture;
+
+void main() {
+	FragColor = texture(aTexture, ourTexCoord) * ourColor;
+}
@@ -0,0 +1,16 @@
+#version 400 core
+
+out vec4 FragColor;
+in vec2 texCoords;
+
+uniform sampler2D sampler;
+uniform vec4 color;
+
+// The glyph atlas stores signed distance fields with the outline at 0.5, the width of the
+// smoothstep follows the screen space derivative so edges stay sharp at every scale
+void main() {
+    float distance = texture(sampler, texCoords).r;
+    float width = fwidth(distance);
+    float alpha = smoothstep(0.5 - width, 0.5 + width, distance);
+    FragColor = vec4(color.rgb, color.a * alpha);
+}
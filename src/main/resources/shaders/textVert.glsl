@@ -1,9 +1,13 @@
 #version 330 core
 layout (location=0) in vec4 aCoords;
 
-uniform mat4 projection;
+// Shared by every program, see Camera
+layout (std140) uniform Camera {
+    mat4 projection;
+    mat4 transform;
+};
+
 uniform mat4 model;
-uniform mat4 transform;
 
 out vec2 texCoords;
 
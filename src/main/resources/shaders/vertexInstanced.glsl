@@ -0,0 +1,28 @@
+#version 330 core
+
+// Corner of the shared unit quad
+layout (location = 0) in vec2 corner;
+
+// Per instance attributes
+layout (location = 1) in vec4 iRect;    // x, y, width, height
+layout (location = 2) in vec4 iTexRect; // Texture coordinates of the top left and bottom right corners
+layout (location = 3) in vec4 iColor;
+
+// Shared by every program, see Camera
+layout (std140) uniform Camera {
+	mat4 projection;
+	mat4 transform;
+};
+
+uniform mat4 model;
+
+out vec2 ourTexCoord;
+out vec4 ourColor;
+
+void main() {
+	vec2 position = iRect.xy + corner * iRect.zw;
+
+	gl_Position = projection * model * transform * vec4(position, 0.0f, 1.0f);
+	ourTexCoord = mix(iTexRect.xy, iTexRect.zw, corner);
+	ourColor = iColor;
+}